@@ -0,0 +1,92 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.elasticsearch.common.io.Streams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Classifying the recorded log lines with the rules of fault-rules.json: the automaton of
+ * FaultClassifier against trying one case insensitive regex per rule until one matches.
+ * The score is lines per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClassifyBenchmark {
+
+	private static final int LINES = 1000;
+
+	private String[] lines;
+	private FaultClassifier classifier;
+	private List<FaultRule> rules;
+	private Pattern[] patterns;
+
+	@Setup
+	public void setUp() throws IOException {
+		List<LogCollect> records = SampleDocuments.records(LINES);
+		lines = new String[LINES];
+		for (int i = 0; i < LINES; i++) {
+			lines[i] = records.get(i).getContent();
+		}
+		classifier = FaultClassifier.defaults();
+		rules = FaultRule.parse(Streams.copyToString(new InputStreamReader(
+				ClassifyBenchmark.class.getResourceAsStream("/fault-rules.json"), StandardCharsets.UTF_8)));
+		patterns = new Pattern[rules.size()];
+		for (int r = 0; r < patterns.length; r++) {
+			FaultRule rule = rules.get(r);
+			List<String> words = new ArrayList<>();
+			for (String keyword : rule.getKeywords()) {
+				words.add("\\b" + Pattern.quote(keyword) + "\\b");
+			}
+			for (String exception : rule.getExceptions()) {
+				words.add(Pattern.quote(exception) + "\\b");
+			}
+			String any = words.isEmpty() ? "" : "(?i:" + String.join("|", words) + ")";
+			String regex = rule.getRegex() == null ? "" : "(?=.*" + rule.getRegex() + ")";
+			patterns[r] = Pattern.compile(regex + (any.isEmpty() ? "" : ".*" + any), Pattern.DOTALL);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void faultClassifier(Blackhole blackhole) {
+		for (String line : lines) {
+			blackhole.consume(classifier.classify(line));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void regexPerRule(Blackhole blackhole) {
+		for (String line : lines) {
+			FaultRule match = null;
+			for (int r = 0; r < patterns.length && match == null; r++) {
+				if (patterns[r].matcher(line).lookingAt()) {
+					match = rules.get(r);
+				}
+			}
+			blackhole.consume(match);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.search.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * Decoding of a page of recorded fluentd hits into LogCollect records: the former
+ * getSourceAsString + JSON.parseObject path against LogCollectDecoder, into records or
+ * into the columns of a reused LogCollectBatch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeBenchmark {
+
+	private SearchHit[] hits;
+	private LogCollectDecoder decoder;
+	private LogCollectBatch batch;
+
+	@Setup
+	public void setUp() throws IOException {
+		hits = SampleDocuments.hits(100);
+		decoder = new LogCollectDecoder();
+		batch = new LogCollectBatch();
+	}
+
+	@Benchmark
+	public void fastjsonParseObject(Blackhole blackhole) {
+		for (SearchHit hit : hits) {
+			JSONObject jsonSource = JSON.parseObject(hit.getSourceAsString());
+			JSONObject jsonKubernetes = jsonSource.getJSONObject("kubernetes");
+
+			LogCollect user = new LogCollect();
+			user.setContent(jsonSource.getString("log"));
+			user.setHostip(jsonKubernetes.getString("host"));
+			user.setLogtime(jsonSource.getDate("@timestamp"));
+			user.setSoftware(jsonKubernetes.getString("pod_name"));
+			user.setProcessname(jsonKubernetes.getString("container_name"));
+			blackhole.consume(user);
+		}
+	}
+
+	@Benchmark
+	public void logCollectDecoder(Blackhole blackhole) throws IOException {
+		for (SearchHit hit : hits) {
+			blackhole.consume(decoder.decode(hit));
+		}
+	}
+
+	@Benchmark
+	public LogCollectBatch logCollectDecoderBatch() throws IOException {
+		batch.clear();
+		decoder.decode(hits, batch);
+		return batch;
+	}
+}
@@ -0,0 +1,106 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The whole export of the term query, fetch, decode and ship, against a RecordedClient in
+ * place of the cluster and an in-process insertErrorLog.action, both with a configurable
+ * latency. The score is exported documents per second. The tail latencies of the scroll
+ * requests and of the posts are printed after every iteration.
+ *
+ * The recorded documents repeat, so the LogDeduplicator of the pipelined export ships far
+ * fewer records than the sequential export; compare each path against itself.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+
+	private static final int DOCS = 20000;
+
+	@Param({ "1", "10" })
+	public long searchLatencyMillis;
+
+	@Param({ "1", "20" })
+	public long backendLatencyMillis;
+
+	@Param({ "4" })
+	public int backendThreads;
+
+	private RecordedClient client;
+	private HttpServer server;
+	private HttpSink sink;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		client = new RecordedClient(DOCS, searchLatencyMillis);
+		server = SampleDocuments.backend(backendLatencyMillis, backendThreads);
+		sink = HttpSink.builder(SampleDocuments.url(server)).setStreaming(true).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		server.stop(0);
+		if (server.getExecutor() != null) {
+			((ExecutorService) server.getExecutor()).shutdownNow();
+		}
+		client.close();
+	}
+
+	@Setup(Level.Iteration)
+	public void resetMetrics() {
+		ExportMetrics.global().snapshot();
+	}
+
+	@TearDown(Level.Iteration)
+	public void printLatencies() {
+		ExportMetrics.Snapshot s = ExportMetrics.global().snapshot();
+		System.out.println(String.format("%nscroll %d p50/p99/p99.9/max %s | post %d p50/p99/p99.9/max %s | %d records shipped",
+				s.scrollMicros.getTotalCount(), percentiles(s.scrollMicros),
+				s.postMicros.getTotalCount(), percentiles(s.postMicros), s.recordsShipped));
+	}
+
+	private static String percentiles(Histogram micros) {
+		return String.format("%.1f/%.1f/%.1f/%.1f ms", micros.getValueAtPercentile(50) / 1000.0,
+				micros.getValueAtPercentile(99) / 1000.0, micros.getValueAtPercentile(99.9) / 1000.0,
+				micros.getMaxValue() / 1000.0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DOCS)
+	public long scroll() throws Exception {
+		DateTime endDate = new DateTime(System.currentTimeMillis());
+		return LoggingSearch.exportTermsSearch(client, sink, endDate.minusHours(60), endDate);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DOCS)
+	public long pipeline() throws Exception {
+		DateTime endDate = new DateTime(System.currentTimeMillis());
+		return LoggingSearch.exportPipelinedTermsSearch(client, sink, endDate.minusHours(60), endDate, 2, 2);
+	}
+}
@@ -0,0 +1,46 @@
+package org.elasticsearch.client.transport;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construction of a LogCollect through its setters, which trim every String.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LogCollectBenchmark {
+
+	// fluentd keeps the trailing newline of a line, so content always needs trimming
+	private String content = "java.lang.IllegalStateException: error while flushing memtable of storage group root.vehicle\n";
+	private String host = "lab3";
+	private String pod = "iotdb-master-8npsb";
+	private String container = "iotdb";
+	private Date timestamp = new Date(1515835291123L);
+
+	@Benchmark
+	public LogCollect construct() {
+		LogCollect user = new LogCollect();
+		user.setContent(content);
+		user.setHostip(host);
+		user.setLogtime(timestamp);
+		user.setSoftware(pod);
+		user.setProcessname(container);
+		user.setUser("admin");
+		user.setFaulttype("error");
+		return user;
+	}
+}
@@ -0,0 +1,89 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alibaba.fastjson.JSON;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Posting a serialized batch to an in-process stand-in of insertErrorLog.action:
+ * HttpUtils.doPost, which opens a connection per post, against the keep-alive HttpSink.
+ * The batch variants include serializing the batch, once into a byte[] and once streamed
+ * onto the connection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PostBenchmark {
+
+	@Param({ "100", "1000" })
+	public int batchSize;
+
+	private HttpServer server;
+	private String url;
+	private String postData;
+	private HttpSink sink;
+	private HttpSink gzipSink;
+	private HttpSink streamingSink;
+	private LogCollectBatch batch;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		server = SampleDocuments.backend();
+		url = SampleDocuments.url(server);
+		postData = JSON.toJSONString(SampleDocuments.records(batchSize));
+		sink = HttpSink.builder(url).build();
+		gzipSink = HttpSink.builder(url).setGzip(true).build();
+		streamingSink = HttpSink.builder(url).setStreaming(true).build();
+		batch = new LogCollectBatch(batchSize);
+		batch.addAll(SampleDocuments.records(batchSize));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Benchmark
+	public void httpUtilsDoPost() throws Exception {
+		HttpUtils.doPost(url, postData);
+	}
+
+	@Benchmark
+	public int httpSink() throws Exception {
+		return sink.post(postData);
+	}
+
+	@Benchmark
+	public int httpSinkGzip() throws Exception {
+		return gzipSink.post(postData);
+	}
+
+	@Benchmark
+	public void httpSinkBatch() throws Exception {
+		sink.ship(batch);
+	}
+
+	@Benchmark
+	public void httpSinkStreaming() throws Exception {
+		streamingSink.ship(batch);
+	}
+}
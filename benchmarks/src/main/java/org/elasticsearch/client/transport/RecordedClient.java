@@ -0,0 +1,140 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.search.ClearScrollAction;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollAction;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.transport.client.PreBuiltTransportClient;
+
+/**
+ * A TransportClient that answers search, scroll and clear scroll requests with pages of the
+ * recorded fluentd documents instead of sending them to a cluster, so the export helpers
+ * run unchanged without a network. Every scroll returns <code>docs</code> hits in pages of
+ * the requested size. Responses arrive on a separate thread after <code>latencyMillis</code>,
+ * like the response of a remote node. Other requests fail.
+ */
+public class RecordedClient extends PreBuiltTransportClient {
+
+	static {
+		// every trial of a fork creates a client, netty may only be told the processors once
+		System.setProperty("es.set.netty.runtime.available.processors", "false");
+	}
+
+	private final long docs;
+	private final long latencyMillis;
+	private final ScheduledExecutorService responder;
+	private final AtomicInteger scrolls = new AtomicInteger();
+	private final Map<String, AtomicLong> remaining = new ConcurrentHashMap<>();
+	private final Map<Integer, SearchHit[]> pages = new ConcurrentHashMap<>();
+
+	/**
+	 * @param docs hits of every scroll
+	 * @param latencyMillis round-trip of every request
+	 */
+	public RecordedClient(long docs, long latencyMillis) {
+		super(Settings.builder().put("cluster.name", "recorded").build());
+		this.docs = docs;
+		this.latencyMillis = latencyMillis;
+		this.responder = Executors.newScheduledThreadPool(2, r -> {
+			Thread thread = new Thread(r, "recorded-responder");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected <Request extends ActionRequest, Response extends ActionResponse, RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>>
+			void doExecute(Action<Request, Response, RequestBuilder> action, Request request, ActionListener<Response> listener) {
+		responder.schedule(() -> {
+			try {
+				ActionResponse response;
+				if (action == SearchAction.INSTANCE) {
+					response = firstPage((SearchRequest) request);
+				} else if (action == SearchScrollAction.INSTANCE) {
+					response = nextPage((SearchScrollRequest) request);
+				} else if (action == ClearScrollAction.INSTANCE) {
+					int cleared = 0;
+					for (String scrollId : ((ClearScrollRequest) request).getScrollIds()) {
+						cleared += remaining.remove(scrollId) == null ? 0 : 1;
+					}
+					response = new ClearScrollResponse(true, cleared);
+				} else {
+					throw new UnsupportedOperationException(action.name() + " is not recorded");
+				}
+				listener.onResponse((Response) response);
+			} catch (Exception e) {
+				listener.onFailure(e);
+			}
+		}, latencyMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private SearchResponse firstPage(SearchRequest request) {
+		int size = request.source() == null || request.source().size() < 0 ? 10 : request.source().size();
+		String scrollId = null;
+		if (request.scroll() != null) {
+			scrollId = "recorded-" + scrolls.incrementAndGet() + "-" + size;
+			remaining.put(scrollId, new AtomicLong(docs));
+		}
+		return page(scrollId, size);
+	}
+
+	private SearchResponse nextPage(SearchScrollRequest request) {
+		String scrollId = request.scrollId();
+		if (!remaining.containsKey(scrollId)) {
+			throw new IllegalArgumentException("no scroll context for " + scrollId);
+		}
+		return page(scrollId, Integer.parseInt(scrollId.substring(scrollId.lastIndexOf('-') + 1)));
+	}
+
+	private SearchResponse page(String scrollId, int size) {
+		long left = scrollId == null ? Math.min(size, docs) : remaining.get(scrollId).getAndAdd(-size);
+		SearchHit[] hits = left <= 0 ? new SearchHit[0] : pages.computeIfAbsent((int) Math.min(size, left), count -> {
+			try {
+				return SampleDocuments.hits(count);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		InternalSearchResponse sections = new InternalSearchResponse(new SearchHits(hits, docs, Float.NaN),
+				null, null, null, false, null, 1);
+		return new SearchResponse(sections, scrollId, 5, 5, 0, latencyMillis, ShardSearchFailure.EMPTY_ARRAY);
+	}
+
+	@Override
+	public void close() {
+		responder.shutdownNow();
+		super.close();
+	}
+
+	/**
+	 * @return the scrolls that were not cleared
+	 */
+	public int openScrolls() {
+		return remaining.size();
+	}
+}
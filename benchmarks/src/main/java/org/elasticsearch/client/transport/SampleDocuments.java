@@ -0,0 +1,130 @@
+package org.elasticsearch.client.transport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Recorded fluentd sources (fluentd-sample.ndjson, one document per line) and helpers
+ * shared by the benchmarks.
+ */
+public class SampleDocuments {
+
+	private static final String RESOURCE = "/fluentd-sample.ndjson";
+
+	private static List<byte[]> sources;
+
+	public static synchronized List<byte[]> sources() throws IOException {
+		if (sources == null) {
+			List<byte[]> lines = new ArrayList<>();
+			try (InputStream in = SampleDocuments.class.getResourceAsStream(RESOURCE);
+					BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (!line.trim().isEmpty()) {
+						lines.add(line.trim().getBytes(StandardCharsets.UTF_8));
+					}
+				}
+			}
+			sources = Collections.unmodifiableList(lines);
+		}
+		return sources;
+	}
+
+	/**
+	 * @param count number of hits, the recorded documents are repeated as needed
+	 * @return hits as the transport client returns them
+	 * @throws IOException
+	 */
+	public static SearchHit[] hits(int count) throws IOException {
+		List<byte[]> sources = sources();
+		SearchHit[] hits = new SearchHit[count];
+		for (int i = 0; i < count; i++) {
+			hits[i] = new SearchHit(i, "AWDx" + i, new Text("fluentd"), Collections.emptyMap())
+					.sourceRef(new BytesArray(sources.get(i % sources.size())));
+		}
+		return hits;
+	}
+
+	/**
+	 * @param count
+	 * @return decoded records as LoggingSearch ships them
+	 * @throws IOException
+	 */
+	public static List<LogCollect> records(int count) throws IOException {
+		LogCollectDecoder decoder = new LogCollectDecoder();
+		List<LogCollect> records = new ArrayList<>(count);
+		for (SearchHit hit : hits(count)) {
+			records.add(decoder.decode(hit));
+		}
+		return LoggingSearch.markErrors(records);
+	}
+
+	/**
+	 * an in-process stand-in for insertErrorLog.action which reads the body and answers 200
+	 * @return the started server, listening on a random local port
+	 * @throws IOException
+	 */
+	public static HttpServer backend() throws IOException {
+		return backend(0, 0);
+	}
+
+	/**
+	 * an in-process stand-in for insertErrorLog.action with the latency and concurrency of
+	 * a real backend, which handles at most threads / latencyMillis posts per millisecond
+	 * @param latencyMillis time every post takes after its body was read
+	 * @param threads posts handled at the same time, 0 for the dispatcher thread only
+	 * @return the started server, listening on a random local port
+	 * @throws IOException
+	 */
+	public static HttpServer backend(long latencyMillis, int threads) throws IOException {
+		// answer without waiting for the delayed ack of the client, like a real servlet container
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/insertErrorLog.action", exchange -> {
+			byte[] buffer = new byte[8192];
+			try (InputStream in = exchange.getRequestBody()) {
+				while (in.read(buffer) != -1) {
+					// discard
+				}
+			}
+			if (latencyMillis > 0) {
+				try {
+					Thread.sleep(latencyMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			exchange.sendResponseHeaders(200, 2);
+			exchange.getResponseBody().write('o');
+			exchange.getResponseBody().write('k');
+			exchange.close();
+		});
+		if (threads > 0) {
+			server.setExecutor(Executors.newFixedThreadPool(threads, r -> {
+				Thread thread = new Thread(r, "backend");
+				thread.setDaemon(true);
+				return thread;
+			}));
+		}
+		server.start();
+		return server;
+	}
+
+	public static String url(HttpServer server) {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/insertErrorLog.action";
+	}
+}
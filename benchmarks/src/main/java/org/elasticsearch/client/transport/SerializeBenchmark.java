@@ -0,0 +1,60 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * Serialization of a batch for the backend, JSON.toJSONString(users) against the columnar
+ * LogCollectBatch writing the same JSON.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializeBenchmark {
+
+	@Param({ "3", "100", "1000", "5000" })
+	public int batchSize;
+
+	private List<LogCollect> users;
+	private LogCollectBatch batch;
+
+	@Setup
+	public void setUp() throws IOException {
+		users = SampleDocuments.records(batchSize);
+		batch = new LogCollectBatch(batchSize);
+		batch.addAll(users);
+	}
+
+	@Benchmark
+	public String toJSONString() {
+		return JSON.toJSONString(users);
+	}
+
+	@Benchmark
+	public byte[] toJSONBytes() {
+		return JSON.toJSONBytes(users);
+	}
+
+	@Benchmark
+	public byte[] batchToJSONBytes() {
+		return batch.toJSONBytes();
+	}
+}
@@ -0,0 +1,226 @@
+package org.elasticsearch.client.transport;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+
+/**
+ * Sizes the pages and the scroll keep alive of a search from what the previous pages cost.
+ *
+ * Like the batch size of a LogBatcher the page size starts at the minimum and grows by a
+ * tenth after every full page of that size that came back within the target latency. A full
+ * page also tells the cost of a hit, and the size grows at once to the hits that cost would
+ * fit into half the target. So a scroll, whose pages all keep the size of its first request,
+ * still moves the size for the next scroll to what its pages cost. The size is halved when a
+ * page was slower than the target, and also when the old generation, as the last GC left it,
+ * has less free space than the headroom. It never exceeds the maximum, nor the number of
+ * hits whose sources fit into the maximum page bytes.
+ *
+ * The keep alive has to last from one scroll request to the next, so it is a multiple of the
+ * slowest recent round-trip plus processing time of a page, within its bounds. The time a
+ * consumer blocks on the next page, e.g. while the backend pushes back, is not known before
+ * the request, so the minimum has to cover the longest the sink can stall a ship, e.g.
+ * HttpSink.maxStall(); the default of 10s only covers consumers that never block that long.
+ */
+public class AdaptivePaging {
+
+	// keep alive per expected time between two requests
+	private static final int KEEP_ALIVE_FACTOR = 3;
+	// share of the slowest time kept per page, so a single slow page is forgotten slowly
+	private static final double DECAY = 0.9;
+	// null for collectors without generations, the whole heap is used then
+	private static final MemoryPoolMXBean OLD_GEN = oldGen();
+
+	private final int minSize;
+	private final int maxSize;
+	private final long targetNanos;
+	private final long maxPageBytes;
+	private final double minHeadroom;
+	private final long minKeepAliveMillis;
+	private final long maxKeepAliveMillis;
+	private final DoubleSupplier headroom;
+
+	private int size;
+	private double bytesPerHit;
+	private double slowestRoundTripNanos;
+	private double slowestProcessingNanos;
+
+	private AdaptivePaging(Builder builder) {
+		this.minSize = builder.minSize;
+		this.maxSize = builder.maxSize;
+		this.targetNanos = builder.targetLatency.nanos();
+		this.maxPageBytes = builder.maxPageBytes.getBytes();
+		this.minHeadroom = builder.minHeadroom;
+		this.minKeepAliveMillis = builder.minKeepAlive.millis();
+		this.maxKeepAliveMillis = builder.maxKeepAlive.millis();
+		this.headroom = builder.headroom;
+		this.size = minSize;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return the size of the next page
+	 */
+	public synchronized int pageSize() {
+		return size;
+	}
+
+	/**
+	 * @return the keep alive of the next scroll request
+	 */
+	public synchronized TimeValue keepAlive() {
+		long expected = TimeUnit.NANOSECONDS.toMillis((long) (slowestRoundTripNanos + slowestProcessingNanos));
+		return TimeValue.timeValueMillis(Math.max(minKeepAliveMillis, Math.min(maxKeepAliveMillis, KEEP_ALIVE_FACTOR * expected)));
+	}
+
+	/**
+	 * @param requested the size the page was requested with
+	 * @param hits the number of hits it returned
+	 * @param bytes the size of their sources
+	 * @param roundTripNanos from sending the request to the response
+	 */
+	public synchronized void onPage(int requested, int hits, long bytes, long roundTripNanos) {
+		slowestRoundTripNanos = Math.max(roundTripNanos, slowestRoundTripNanos * DECAY);
+		if (hits > 0) {
+			double perHit = (double) bytes / hits;
+			bytesPerHit = bytesPerHit == 0 ? perHit : 0.8 * bytesPerHit + 0.2 * perHit;
+		}
+
+		if (headroom.getAsDouble() < minHeadroom || roundTripNanos > targetNanos) {
+			size = Math.max(minSize, size / 2);
+		} else if (hits > 0 && hits >= requested) {
+			// only a full page tells that a larger one would have been filled
+			long fits = targetNanos / 2 * hits / Math.max(1, roundTripNanos);
+			int grown = requested >= size ? size + Math.max(1, size / 10) : size;
+			size = (int) Math.min(maxSize, Math.max(grown, fits));
+		}
+		if (bytesPerHit > 0) {
+			size = (int) Math.max(minSize, Math.min(size, maxPageBytes / bytesPerHit));
+		}
+	}
+
+	/**
+	 * @param processingNanos from receiving a page to asking for the next one
+	 */
+	public synchronized void onProcessed(long processingNanos) {
+		slowestProcessingNanos = Math.max(processingNanos, slowestProcessingNanos * DECAY);
+	}
+
+	/**
+	 * @return the bytes of the sources of the hits
+	 */
+	static long bytes(SearchHit[] hits) {
+		long bytes = 0;
+		for (SearchHit hit : hits) {
+			if (hit.getSourceRef() != null) {
+				bytes += hit.getSourceRef().length();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * the free share of the old generation after the last collection of it; the used heap
+	 * of the moment counts the garbage not collected yet and is low right before every GC
+	 */
+	private static double heapHeadroom() {
+		if (OLD_GEN != null) {
+			MemoryUsage usage = OLD_GEN.getCollectionUsage();
+			if (usage != null) {
+				long max = usage.getMax() > 0 ? usage.getMax() : Runtime.getRuntime().maxMemory();
+				return 1.0 - (double) usage.getUsed() / max;
+			}
+		}
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		return 1.0 - (double) used / runtime.maxMemory();
+	}
+
+	private static MemoryPoolMXBean oldGen() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			// PS Old Gen, G1 Old Gen, CMS Old Gen, Tenured Gen
+			if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()
+					&& (pool.getName().contains("Old") || pool.getName().contains("Tenured"))) {
+				return pool;
+			}
+		}
+		return null;
+	}
+
+	public static class Builder {
+		private int minSize = 100;
+		private int maxSize = 5000;
+		private TimeValue targetLatency = TimeValue.timeValueSeconds(1);
+		private ByteSizeValue maxPageBytes = new ByteSizeValue(10, ByteSizeUnit.MB);
+		private double minHeadroom = 0.2;
+		private TimeValue minKeepAlive = TimeValue.timeValueSeconds(10);
+		private TimeValue maxKeepAlive = TimeValue.timeValueMinutes(5);
+		private DoubleSupplier headroom = AdaptivePaging::heapHeadroom;
+
+		private Builder() {
+		}
+
+		/**
+		 * hits per page, the first page has the minimum
+		 */
+		public Builder setPageSize(int minSize, int maxSize) {
+			if (minSize < 1 || maxSize < minSize) {
+				throw new IllegalArgumentException("invalid page size [" + minSize + ", " + maxSize + "]");
+			}
+			this.minSize = minSize;
+			this.maxSize = maxSize;
+			return this;
+		}
+
+		/**
+		 * round-trip of a page above which the page size is halved
+		 */
+		public Builder setTargetLatency(TimeValue targetLatency) {
+			this.targetLatency = targetLatency;
+			return this;
+		}
+
+		public Builder setMaxPageBytes(ByteSizeValue maxPageBytes) {
+			this.maxPageBytes = maxPageBytes;
+			return this;
+		}
+
+		/**
+		 * share of the old generation that has to be free after a GC, below it the page size
+		 * is halved
+		 */
+		public Builder setMinHeapHeadroom(double minHeadroom) {
+			this.minHeadroom = minHeadroom;
+			return this;
+		}
+
+		public Builder setKeepAlive(TimeValue minKeepAlive, TimeValue maxKeepAlive) {
+			if (maxKeepAlive.millis() < minKeepAlive.millis()) {
+				throw new IllegalArgumentException("invalid keep alive [" + minKeepAlive + ", " + maxKeepAlive + "]");
+			}
+			this.minKeepAlive = minKeepAlive;
+			this.maxKeepAlive = maxKeepAlive;
+			return this;
+		}
+
+		Builder setHeapHeadroom(DoubleSupplier headroom) {
+			this.headroom = headroom;
+			return this;
+		}
+
+		public AdaptivePaging build() {
+			return new AdaptivePaging(this);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package org.elasticsearch.client.transport;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.constantScoreQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * One alert rule of a RuleScheduler, in one of the shapes of the FunctionCollection queries:
+ *
+ * terms           terms on field, matching any of the values ("log": error, exception, ...)
+ * bool            bool query that must match every term of field and values
+ * constant_score  constant_score around a term on field, value is the first of the values
+ *
+ * Rules are read from a JSON array, e.g.
+ * [{"name":"errors","type":"terms","field":"log","values":["error","exception"],"interval":60}]
+ */
+public class AlertRule {
+
+	private static final String DEFAULT_RULES = "/alert-rules.json";
+
+	private String name;
+	private String type;
+	private String field;
+	private List<String> values;
+	// seconds between two runs
+	private int interval = 60;
+	private int size = 100;
+
+	/**
+	 * @param file JSON array of rules
+	 * @return
+	 * @throws IOException
+	 */
+	public static List<AlertRule> load(Path file) throws IOException {
+		return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return the rules of alert-rules.json on the classpath
+	 */
+	public static List<AlertRule> defaults() {
+		try (InputStream in = AlertRule.class.getResourceAsStream(DEFAULT_RULES)) {
+			if (in == null) {
+				throw new IllegalStateException(DEFAULT_RULES + " is not on the classpath");
+			}
+			return parse(Streams.copyToString(new InputStreamReader(in, StandardCharsets.UTF_8)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static List<AlertRule> parse(String json) {
+		List<AlertRule> rules = JSON.parseArray(json, AlertRule.class);
+		for (AlertRule rule : rules) {
+			// fail on startup instead of on the first tick
+			rule.toQuery();
+		}
+		return rules;
+	}
+
+	public QueryBuilder toQuery() {
+		if (field == null || values == null || values.isEmpty()) {
+			throw new IllegalArgumentException("rule [" + name + "] needs a field and at least one value");
+		}
+		if ("terms".equals(type)) {
+			return termsQuery(field, values);
+		} else if ("bool".equals(type)) {
+			BoolQueryBuilder bool = boolQuery();
+			for (String value : values) {
+				bool.must(termQuery(field, value));
+			}
+			return bool;
+		} else if ("constant_score".equals(type)) {
+			return constantScoreQuery(termQuery(field, values.get(0)));
+		}
+		throw new IllegalArgumentException("rule [" + name + "] has unknown type [" + type + "]");
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public String getField() {
+		return field;
+	}
+
+	public void setField(String field) {
+		this.field = field;
+	}
+
+	public List<String> getValues() {
+		return values;
+	}
+
+	public void setValues(List<String> values) {
+		this.values = values;
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+
+	public void setInterval(int interval) {
+		this.interval = interval;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+}
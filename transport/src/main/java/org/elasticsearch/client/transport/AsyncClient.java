@@ -0,0 +1,191 @@
+package org.elasticsearch.client.transport;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+
+/**
+ * Non-blocking facade over a TransportClient: every request returns a CompletableFuture
+ * completed by the ActionListener of the request, so searches, scroll loops, multi gets
+ * and updates compose without a thread waiting in get() or actionGet().
+ *
+ * At most <code>permitsPerNode</code> requests per connected node are in flight. Requests
+ * over the limit wait in a queue, not in a thread, and are sent as soon as a response
+ * frees a permit. Futures complete on the thread that received the response, so dependent
+ * stages that do more than a little work should use the *Async variants with an executor.
+ */
+public class AsyncClient {
+
+	private final TransportClient client;
+	private final IntSupplier limit;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param client
+	 * @param permitsPerNode requests in flight per connected node
+	 */
+	public AsyncClient(TransportClient client, int permitsPerNode) {
+		this(client, () -> permitsPerNode * Math.max(1, client.connectedNodes().size()));
+	}
+
+	AsyncClient(TransportClient client, IntSupplier limit) {
+		this.client = client;
+		this.limit = limit;
+	}
+
+	/**
+	 * @return the number of requests sent and not answered yet
+	 */
+	public int inFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * @return the number of requests waiting for a permit
+	 */
+	public int pending() {
+		return pending.size();
+	}
+
+	public <Request extends ActionRequest, Response extends ActionResponse, RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>>
+			CompletableFuture<Response> execute(ActionRequestBuilder<Request, Response, RequestBuilder> request) {
+		return execute(request::execute);
+	}
+
+	public CompletableFuture<SearchResponse> search(SearchRequestBuilder search) {
+		return execute(search);
+	}
+
+	public CompletableFuture<MultiGetResponse> multiGet(MultiGetRequestBuilder multiGet) {
+		return execute(multiGet);
+	}
+
+	public CompletableFuture<UpdateResponse> update(UpdateRequest update) {
+		return execute(listener -> client.update(update, listener));
+	}
+
+	/**
+	 * scroll through all pages of a search, every page is requested when the previous one
+	 * was handled and the scroll context is cleared at the end, or when a page failed
+	 * @param search
+	 * @param keepAlive
+	 * @param handler called with every non-empty page
+	 * @param executor runs the handler, so a handler that blocks, e.g. on a post, does not
+	 * hold the transport thread that received the page
+	 * @return the number of hits handled
+	 */
+	public CompletableFuture<Long> scroll(SearchRequestBuilder search, TimeValue keepAlive, HitsHandler handler,
+			Executor executor) {
+		return search(search.setScroll(keepAlive))
+				.thenComposeAsync(response -> nextPage(response, keepAlive, handler, executor, 0), executor);
+	}
+
+	private CompletableFuture<Long> nextPage(SearchResponse response, TimeValue keepAlive, HitsHandler handler,
+			Executor executor, long handled) {
+		String scrollId = response.getScrollId();
+		SearchHit[] hits = response.getHits().getHits();
+		if (hits.length == 0) {
+			clearScroll(scrollId);
+			return CompletableFuture.completedFuture(handled);
+		}
+		try {
+			handler.handle(hits);
+		} catch (Exception e) {
+			clearScroll(scrollId);
+			return failed(e);
+		}
+		return execute(client.prepareSearchScroll(scrollId).setScroll(keepAlive))
+				.whenComplete((next, e) -> {
+					if (e != null) {
+						clearScroll(scrollId);
+					}
+				})
+				.thenComposeAsync(next -> nextPage(next, keepAlive, handler, executor, handled + hits.length), executor);
+	}
+
+	private void clearScroll(String scrollId) {
+		if (scrollId != null) {
+			execute(client.prepareClearScroll().addScrollId(scrollId));
+		}
+	}
+
+	/**
+	 * send a request once a permit is free
+	 * @param call sends the request and completes the listener
+	 */
+	<Response> CompletableFuture<Response> execute(Consumer<ActionListener<Response>> call) {
+		CompletableFuture<Response> future = new CompletableFuture<>();
+		pending.add(() -> {
+			ActionListener<Response> listener = new ActionListener<Response>() {
+				@Override
+				public void onResponse(Response response) {
+					// the permit is free before dependent stages send their requests
+					release();
+					future.complete(response);
+				}
+				@Override
+				public void onFailure(Exception e) {
+					release();
+					future.completeExceptionally(e);
+				}
+			};
+			try {
+				call.accept(listener);
+			} catch (Exception e) {
+				listener.onFailure(e);
+			}
+		});
+		drain();
+		return future;
+	}
+
+	private void release() {
+		inFlight.decrementAndGet();
+		drain();
+	}
+
+	/**
+	 * send pending requests while permits are free
+	 */
+	private void drain() {
+		while (!pending.isEmpty()) {
+			int current = inFlight.get();
+			if (current >= limit.getAsInt()) {
+				return;
+			}
+			if (!inFlight.compareAndSet(current, current + 1)) {
+				continue;
+			}
+			Runnable send = pending.poll();
+			if (send == null) {
+				// another thread took it
+				inFlight.decrementAndGet();
+				continue;
+			}
+			send.run();
+		}
+	}
+
+	private static <T> CompletableFuture<T> failed(Exception e) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		future.completeExceptionally(e);
+		return future;
+	}
+}
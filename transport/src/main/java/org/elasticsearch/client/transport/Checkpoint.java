@@ -0,0 +1,71 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * High-water mark of a tailing search: the @timestamp and the _uid of the last document
+ * that was shipped. Stored as one line "timestamp uid" in a local file, which is replaced
+ * atomically so a crash never leaves a half written checkpoint behind.
+ */
+public class Checkpoint {
+
+	private final long timestamp;
+	private final String uid;
+
+	public Checkpoint(long timestamp, String uid) {
+		this.timestamp = timestamp;
+		this.uid = uid;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getUid() {
+		return uid;
+	}
+
+	/**
+	 * @return the sort values to continue after, matching the sort on @timestamp and _uid
+	 */
+	public Object[] searchAfter() {
+		return new Object[] { timestamp, uid };
+	}
+
+	/**
+	 * @param file
+	 * @return the stored checkpoint or null if there is none yet
+	 * @throws IOException
+	 */
+	public static Checkpoint load(Path file) throws IOException {
+		if (!Files.exists(file)) {
+			return null;
+		}
+		String line = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		// only the line break is cut off, the uid after the separator may be empty
+		int end = line.indexOf('\n');
+		if (end >= 0) {
+			line = line.substring(0, end);
+		}
+		int separator = line.indexOf(' ');
+		if (separator < 0) {
+			throw new IOException("corrupt checkpoint " + file + ": " + line);
+		}
+		return new Checkpoint(Long.parseLong(line.substring(0, separator)), line.substring(separator + 1));
+	}
+
+	public void store(Path file) throws IOException {
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.write(tmp, (timestamp + " " + uid + "\n").getBytes(StandardCharsets.UTF_8));
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	@Override
+	public String toString() {
+		return timestamp + " " + uid;
+	}
+}
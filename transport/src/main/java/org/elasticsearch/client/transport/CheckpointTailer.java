@@ -0,0 +1,181 @@
+package org.elasticsearch.client.transport;
+
+import java.nio.file.Path;
+import java.util.function.LongSupplier;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * Continuously tails logstash-* for new documents matching a query.
+ *
+ * Every poll sorts on @timestamp with _uid as tiebreaker and pages with search_after from
+ * the last checkpoint, so only documents newer than the checkpoint are read and no scroll
+ * context is kept on the cluster. The checkpoint is stored after each page was handled,
+ * a restart resumes right after the last shipped document, or at the oldest document the
+ * handler still holds back.
+ *
+ * A document becomes searchable some time after its @timestamp: the forwarder buffers it
+ * until its next flush and the index refreshes every second. A later document with an older
+ * @timestamp than the checkpoint would sort before it and never be read, so a poll only reads
+ * documents older than now minus the settle lag, and the checkpoint stays within that bound.
+ *
+ * Every search_after request is a new search, so with AdaptivePaging each page gets the
+ * current page size: small while the tail has caught up, large while it works off a backlog.
+ */
+public class CheckpointTailer {
+
+	/**
+	 * the refresh interval of 1s plus the flush interval of 5s of the fluentd buffer
+	 */
+	public static final TimeValue DEFAULT_SETTLE_LAG = TimeValue.timeValueSeconds(6);
+
+	private final TransportClient client;
+	private final QueryBuilder query;
+	private final Path checkpointFile;
+	private final int pageSize;
+	private final LongSupplier clock;
+
+	private Checkpoint checkpoint;
+	private long settleLagMillis = DEFAULT_SETTLE_LAG.millis();
+	private LongSupplier held = () -> Long.MAX_VALUE;
+	private IndexResolver indices;
+	private AdaptivePaging paging;
+
+	/**
+	 * @param client
+	 * @param query
+	 * @param checkpointFile
+	 * @param initialStart @timestamp to start from when there is no checkpoint yet
+	 * @param pageSize
+	 * @throws Exception
+	 */
+	public CheckpointTailer(TransportClient client, QueryBuilder query, Path checkpointFile,
+			long initialStart, int pageSize) throws Exception {
+		this(client, query, checkpointFile, initialStart, pageSize, System::currentTimeMillis);
+	}
+
+	CheckpointTailer(TransportClient client, QueryBuilder query, Path checkpointFile,
+			long initialStart, int pageSize, LongSupplier clock) throws Exception {
+		this.client = client;
+		this.query = query;
+		this.checkpointFile = checkpointFile;
+		this.pageSize = pageSize;
+		this.clock = clock;
+
+		Checkpoint stored = Checkpoint.load(checkpointFile);
+		// "" sorts before every _uid, so documents at initialStart are included
+		this.checkpoint = stored != null ? stored : new Checkpoint(initialStart, "");
+	}
+
+	/**
+	 * how long after its @timestamp a document is searchable at the latest: the refresh
+	 * interval of the indices plus the flush interval of the forwarder
+	 */
+	public void setSettleLag(TimeValue settleLag) {
+		this.settleLagMillis = settleLag.millis();
+	}
+
+	/**
+	 * for a handler that holds documents back across pages, e.g. the open events of a
+	 * LogStitcher: the stored checkpoint is not moved past the oldest held @timestamp, so
+	 * a restart fetches the held documents again, and the documents after them with it
+	 * @param held @timestamp of the oldest document held back, Long.MAX_VALUE for none
+	 */
+	public void setHeld(LongSupplier held) {
+		this.held = held;
+	}
+
+	/**
+	 * search only the daily indices from the checkpoint on instead of logstash-*
+	 */
+	public void setIndexResolver(IndexResolver indices) {
+		this.indices = indices;
+	}
+
+	/**
+	 * size the pages from their latency instead of the fixed page size
+	 */
+	public void setPaging(AdaptivePaging paging) {
+		this.paging = paging;
+	}
+
+	public Checkpoint getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * fetch all documents newer than the checkpoint and older than the settle lag
+	 * @param handler
+	 * @return the number of new documents
+	 * @throws Exception
+	 */
+	public long poll(HitsHandler handler) throws Exception {
+		long until = clock.getAsLong() - settleLagMillis;
+		long count = 0;
+		while (checkpoint.getTimestamp() < until) {
+			int size = paging == null ? pageSize : paging.pageSize();
+			long start = System.nanoTime();
+			SearchResponse response = search(size, until).get();
+			SearchHit[] hits = response.getHits().getHits();
+			if (paging != null) {
+				paging.onPage(size, hits.length, AdaptivePaging.bytes(hits), System.nanoTime() - start);
+			}
+			if (hits.length == 0) {
+				return count;
+			}
+			long handled = System.nanoTime();
+			handler.handle(hits);
+			if (paging != null) {
+				paging.onProcessed(System.nanoTime() - handled);
+			}
+			count += hits.length;
+
+			Object[] last = hits[hits.length - 1].getSortValues();
+			checkpoint = new Checkpoint(((Number) last[0]).longValue(), String.valueOf(last[1]));
+			long oldestHeld = held.getAsLong();
+			// "" sorts before every _uid, so the oldest held document is fetched again
+			(oldestHeld <= checkpoint.getTimestamp() ? new Checkpoint(oldestHeld, "") : checkpoint).store(checkpointFile);
+
+			if (hits.length < size) {
+				return count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * poll until the thread is interrupted
+	 * @param handler
+	 * @param intervalMillis pause between two polls
+	 * @throws Exception
+	 */
+	public void run(HitsHandler handler, long intervalMillis) throws Exception {
+		while (!Thread.currentThread().isInterrupted()) {
+			poll(handler);
+			try {
+				Thread.sleep(intervalMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private SearchRequestBuilder search(int size, long until) {
+		QueryBuilder qb = FetchProfile.filter(query,
+				QueryBuilders.rangeQuery("@timestamp").gte(checkpoint.getTimestamp()).lt(until));
+
+		return FetchProfile.LOG_COLLECT.apply(IndexResolver.prepareSearch(client, indices, checkpoint.getTimestamp(), until)
+				.setTypes("fluentd")
+				.setQuery(qb)
+				.addSort("@timestamp", SortOrder.ASC)
+				.addSort("_uid", SortOrder.ASC)
+				.searchAfter(checkpoint.searchAfter())
+				.setSize(size));
+	}
+}
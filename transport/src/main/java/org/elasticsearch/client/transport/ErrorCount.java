@@ -0,0 +1,45 @@
+package org.elasticsearch.client.transport;
+
+import java.util.Date;
+
+public class ErrorCount {
+    private String hostip;
+
+    private String software;
+
+    private Date logtime;
+
+    private Long count;
+
+    public String getHostip() {
+        return hostip;
+    }
+
+    public void setHostip(String hostip) {
+        this.hostip = hostip == null ? null : hostip.trim();
+    }
+
+    public String getSoftware() {
+        return software;
+    }
+
+    public void setSoftware(String software) {
+        this.software = software == null ? null : software.trim();
+    }
+
+    public Date getLogtime() {
+        return logtime;
+    }
+
+    public void setLogtime(Date logtime) {
+        this.logtime = logtime;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+}
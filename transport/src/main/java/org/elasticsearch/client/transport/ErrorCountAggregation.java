@@ -0,0 +1,121 @@
+package org.elasticsearch.client.transport;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.bucket.terms.support.IncludeExclude;
+import org.joda.time.DateTime;
+
+/**
+ * Counts matching documents per kubernetes.host, kubernetes.pod_name and @timestamp bucket
+ * on the cluster (terms > terms > date_histogram) instead of pulling every hit.
+ *
+ * The pods are split into partitions of the terms include (the 5.x way to page through a
+ * large set of terms), one search per partition, so every pod is counted in exactly one
+ * response and no response grows with the number of pods.
+ *
+ * The fluentd documents are indexed with the dynamic mapping of 5.x (or the logstash
+ * template), which maps strings to text with a keyword subfield. Text has no docvalues, so
+ * the terms are aggregated on kubernetes.host.keyword and kubernetes.pod_name.keyword.
+ */
+public class ErrorCountAggregation {
+
+	private static final Logger logger = LogManager.getLogger(ErrorCountAggregation.class);
+
+	static final String HOST_FIELD = "kubernetes.host.keyword";
+	static final String POD_FIELD = "kubernetes.pod_name.keyword";
+
+	private final TransportClient client;
+	private final QueryBuilder query;
+	private final DateHistogramInterval interval;
+	private final int partitions;
+	private final int maxHosts;
+	private final int maxPodsPerPartition;
+	private IndexResolver indices;
+
+	/**
+	 * @param client
+	 * @param query the documents to count
+	 * @param interval size of the time buckets
+	 * @param partitions number of searches the pods are spread over
+	 * @param maxHosts
+	 * @param maxPodsPerPartition
+	 */
+	public ErrorCountAggregation(TransportClient client, QueryBuilder query, DateHistogramInterval interval,
+			int partitions, int maxHosts, int maxPodsPerPartition) {
+		this.client = client;
+		this.query = query;
+		this.interval = interval;
+		this.partitions = partitions;
+		this.maxHosts = maxHosts;
+		this.maxPodsPerPartition = maxPodsPerPartition;
+	}
+
+	/**
+	 * count only in the daily indices of the range instead of logstash-*
+	 */
+	public void setIndexResolver(IndexResolver indices) {
+		this.indices = indices;
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @return one row per host, pod and time bucket with at least one document
+	 */
+	public List<ErrorCount> count(DateTime from, DateTime to) {
+		List<ErrorCount> rows = new ArrayList<>();
+		for (int partition = 0; partition < partitions; partition++) {
+			SearchResponse response = IndexResolver.prepareSearch(client, indices, from.getMillis(), to.getMillis())
+					.setTypes("fluentd")
+					.setQuery(QueryBuilders.boolQuery()
+							.filter(query)
+							.filter(QueryBuilders.rangeQuery("@timestamp").from(from).to(to)))
+					.setSize(0)
+					.addAggregation(AggregationBuilders.terms("hosts").field(HOST_FIELD).size(maxHosts)
+							.subAggregation(AggregationBuilders.terms("pods").field(POD_FIELD)
+									.includeExclude(new IncludeExclude(partition, partitions))
+									.size(maxPodsPerPartition)
+									.subAggregation(AggregationBuilders.dateHistogram("buckets").field("@timestamp")
+											.dateHistogramInterval(interval)
+											.minDocCount(1))))
+					.get();
+
+			Terms hosts = response.getAggregations().get("hosts");
+			warnIfTruncated(hosts, "hosts");
+			for (Terms.Bucket host : hosts.getBuckets()) {
+				Terms pods = host.getAggregations().get("pods");
+				warnIfTruncated(pods, "pods of " + host.getKeyAsString());
+				for (Terms.Bucket pod : pods.getBuckets()) {
+					Histogram buckets = pod.getAggregations().get("buckets");
+					for (Histogram.Bucket bucket : buckets.getBuckets()) {
+						ErrorCount row = new ErrorCount();
+						row.setHostip(host.getKeyAsString());
+						row.setSoftware(pod.getKeyAsString());
+						row.setLogtime(new Date(((DateTime) bucket.getKey()).getMillis()));
+						row.setCount(bucket.getDocCount());
+						rows.add(row);
+					}
+				}
+			}
+		}
+		return rows;
+	}
+
+	private void warnIfTruncated(Terms terms, String what) {
+		if (terms.getSumOfOtherDocCounts() > 0) {
+			logger.warn(terms.getSumOfOtherDocCounts() + " documents of further " + what
+					+ " were not counted, raise the size or the number of partitions");
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package org.elasticsearch.client.transport;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Latency and throughput of the export, recorded by the scroll, the decoder, the sink and
+ * the pipeline into HdrHistogram recorders and counters. Recording is wait-free, a
+ * reporter periodically takes the interval histograms and logs them (LogReporter) or
+ * hands them to any other Reporter.
+ */
+public class ExportMetrics {
+
+	private static final ExportMetrics GLOBAL = new ExportMetrics();
+
+	private final Recorder scrollMicros = new Recorder(3);
+	private final Recorder hitsPerPage = new Recorder(3);
+	private final Recorder decodeNanos = new Recorder(3);
+	private final Recorder postMicros = new Recorder(3);
+	private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+	private final LongAdder postFailures = new LongAdder();
+	private final LongAdder bytesShipped = new LongAdder();
+	private final LongAdder recordsShipped = new LongAdder();
+	private final Map<String, IntSupplier> queues = new ConcurrentHashMap<>();
+
+	private ScheduledExecutorService scheduler;
+	private long lastReport = System.currentTimeMillis();
+
+	/**
+	 * @return the metrics all export components record into
+	 */
+	public static ExportMetrics global() {
+		return GLOBAL;
+	}
+
+	public void recordScroll(long micros, int hits) {
+		scrollMicros.recordValue(micros);
+		hitsPerPage.recordValue(hits);
+	}
+
+	/**
+	 * @param nanos time to decode the whole page
+	 * @param documents
+	 */
+	public void recordDecode(long nanos, int documents) {
+		if (documents > 0) {
+			decodeNanos.recordValueWithCount(nanos / documents, documents);
+		}
+	}
+
+	public void recordPost(long micros, int status, long bytes, int records) {
+		postMicros.recordValue(micros);
+		statusCodes.computeIfAbsent(status, code -> new LongAdder()).increment();
+		if (status < 300) {
+			bytesShipped.add(bytes);
+			recordsShipped.add(records);
+		}
+	}
+
+	/**
+	 * a post that got no response at all
+	 */
+	public void recordPostFailure() {
+		postFailures.increment();
+	}
+
+	public void registerQueue(String name, IntSupplier depth) {
+		queues.put(name, depth);
+	}
+
+	public void unregisterQueue(String name) {
+		queues.remove(name);
+	}
+
+	/**
+	 * @return the values recorded since the last snapshot
+	 */
+	public synchronized Snapshot snapshot() {
+		long now = System.currentTimeMillis();
+		Snapshot snapshot = new Snapshot(now - lastReport);
+		lastReport = now;
+
+		snapshot.scrollMicros = scrollMicros.getIntervalHistogram();
+		snapshot.hitsPerPage = hitsPerPage.getIntervalHistogram();
+		snapshot.decodeNanos = decodeNanos.getIntervalHistogram();
+		snapshot.postMicros = postMicros.getIntervalHistogram();
+		statusCodes.forEach((code, count) -> snapshot.statusCodes.put(code, count.sumThenReset()));
+		snapshot.postFailures = postFailures.sumThenReset();
+		snapshot.bytesShipped = bytesShipped.sumThenReset();
+		snapshot.recordsShipped = recordsShipped.sumThenReset();
+		queues.forEach((name, depth) -> snapshot.queueDepths.put(name, depth.getAsInt()));
+		return snapshot;
+	}
+
+	/**
+	 * report a snapshot every interval until stopReporting is called
+	 */
+	public synchronized void startReporting(Reporter reporter, TimeValue interval) {
+		stopReporting();
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "export-metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(() -> reporter.report(snapshot()),
+				interval.millis(), interval.millis(), TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stopReporting() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	@FunctionalInterface
+	public interface Reporter {
+		void report(Snapshot snapshot);
+	}
+
+	/**
+	 * logs one summary line per interval through log4j2
+	 */
+	public static class LogReporter implements Reporter {
+		private static final Logger logger = LogManager.getLogger(ExportMetrics.class);
+
+		@Override
+		public void report(Snapshot s) {
+			double seconds = Math.max(1, s.intervalMillis) / 1000.0;
+			logger.info(String.format("scroll %d pages p50/p99/max %.1f/%.1f/%.1f ms, %.1f hits/page | "
+					+ "decode p50/p99 %d/%d ns/doc | post %d p50/p99/max %.1f/%.1f/%.1f ms, status %s, %d failed | "
+					+ "shipped %.0f records/s %.1f KB/s | queues %s",
+					s.scrollMicros.getTotalCount(), millis(s.scrollMicros, 50), millis(s.scrollMicros, 99),
+					s.scrollMicros.getMaxValue() / 1000.0, s.hitsPerPage.getMean(),
+					s.decodeNanos.getValueAtPercentile(50), s.decodeNanos.getValueAtPercentile(99),
+					s.postMicros.getTotalCount(), millis(s.postMicros, 50), millis(s.postMicros, 99),
+					s.postMicros.getMaxValue() / 1000.0, s.statusCodes, s.postFailures,
+					s.recordsShipped / seconds, s.bytesShipped / 1024.0 / seconds, s.queueDepths));
+		}
+
+		private static double millis(Histogram micros, double percentile) {
+			return micros.getValueAtPercentile(percentile) / 1000.0;
+		}
+	}
+
+	public static class Snapshot {
+		public final long intervalMillis;
+		public Histogram scrollMicros;
+		public Histogram hitsPerPage;
+		public Histogram decodeNanos;
+		public Histogram postMicros;
+		public final Map<Integer, Long> statusCodes = new TreeMap<>();
+		public long postFailures;
+		public long bytesShipped;
+		public long recordsShipped;
+		public final Map<String, Integer> queueDepths = new TreeMap<>();
+
+		Snapshot(long intervalMillis) {
+			this.intervalMillis = intervalMillis;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package org.elasticsearch.client.transport;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.search.SearchHit;
+
+/**
+ * Runs an export as three stages with their own workers: fetch (one thread pulling pages
+ * from the source), decode (hits to LogCollect records, followed by the LogStages) and
+ * ship (hand the records to the LogSink, e.g. a LogBatcher in front of the HttpSink).
+ * The stages are connected by bounded queues, so a slow backend blocks the decoders,
+ * which block the fetcher, which stops asking the cluster for further pages instead of
+ * filling up the heap. The sink is flushed when all pages were shipped.
+ */
+public class ExportPipeline {
+
+	private static final SearchHit[] END_OF_PAGES = new SearchHit[0];
+	private static final List<LogCollect> END_OF_BATCHES = new ArrayList<>(0);
+
+	// tells the queue gauges of pipelines running at the same time apart
+	private static final AtomicInteger PIPELINES = new AtomicInteger();
+
+	private final Iterator<SearchHit[]> source;
+	private final LogSink sink;
+	private final List<LogStage> stages;
+	private final int decodeThreads;
+	private final int shipThreads;
+
+	private final BlockingQueue<SearchHit[]> pages;
+	private final BlockingQueue<List<LogCollect>> batches;
+	private final AtomicInteger runningDecoders = new AtomicInteger();
+	private final AtomicLong shipped = new AtomicLong();
+
+	private ExportPipeline(Builder builder) {
+		this.source = builder.source;
+		this.sink = builder.sink;
+		this.stages = new ArrayList<>(builder.stages);
+		this.decodeThreads = builder.decodeThreads;
+		this.shipThreads = builder.shipThreads;
+		this.pages = new ArrayBlockingQueue<>(builder.queueCapacity);
+		this.batches = new ArrayBlockingQueue<>(builder.queueCapacity);
+	}
+
+	/**
+	 * @param source the pages to export, e.g. a PrefetchingScroll or SlicedScroll
+	 * @param sink
+	 * @return
+	 */
+	public static Builder builder(Iterator<SearchHit[]> source, LogSink sink) {
+		return new Builder(source, sink);
+	}
+
+	public int pagesQueued() {
+		return pages.size();
+	}
+
+	public int batchesQueued() {
+		return batches.size();
+	}
+
+	/**
+	 * export all pages of the source, the first failure of any stage stops the export
+	 * @return the number of records shipped
+	 * @throws Exception
+	 */
+	public long run() throws Exception {
+		ExecutorService workers = Executors.newFixedThreadPool(1 + decodeThreads + shipThreads);
+		ExecutorCompletionService<Void> completion = new ExecutorCompletionService<>(workers);
+		int id = PIPELINES.incrementAndGet();
+		ExportMetrics.global().registerQueue("pages-" + id, pages::size);
+		ExportMetrics.global().registerQueue("batches-" + id, batches::size);
+		try {
+			runningDecoders.set(decodeThreads);
+			completion.submit(this::fetch);
+			for (int i = 0; i < decodeThreads; i++) {
+				completion.submit(this::decode);
+			}
+			for (int i = 0; i < shipThreads; i++) {
+				completion.submit(this::ship);
+			}
+			for (int i = 0; i < 1 + decodeThreads + shipThreads; i++) {
+				try {
+					completion.take().get();
+				} catch (ExecutionException e) {
+					throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+			sink.flush();
+			return shipped.get();
+		} finally {
+			ExportMetrics.global().unregisterQueue("pages-" + id);
+			ExportMetrics.global().unregisterQueue("batches-" + id);
+			workers.shutdownNow();
+			if (source instanceof Closeable) {
+				((Closeable) source).close();
+			}
+		}
+	}
+
+	private Void fetch() throws InterruptedException {
+		while (source.hasNext()) {
+			pages.put(source.next());
+		}
+		for (int i = 0; i < decodeThreads; i++) {
+			pages.put(END_OF_PAGES);
+		}
+		return null;
+	}
+
+	private Void decode() throws Exception {
+		LogCollectDecoder decoder = new LogCollectDecoder();
+		SearchHit[] hits;
+		while ((hits = pages.take()) != END_OF_PAGES) {
+			List<LogCollect> records = new ArrayList<>(hits.length);
+			decoder.decode(hits, records);
+			for (LogStage stage : stages) {
+				records = stage.process(records);
+			}
+			if (!records.isEmpty()) {
+				batches.put(records);
+			}
+		}
+		// the last decoder drains the stages and tells the shippers there is nothing more to come
+		if (runningDecoders.decrementAndGet() == 0) {
+			for (int i = 0; i < stages.size(); i++) {
+				List<LogCollect> records = stages.get(i).flush();
+				for (int j = i + 1; j < stages.size() && !records.isEmpty(); j++) {
+					records = stages.get(j).process(records);
+				}
+				if (!records.isEmpty()) {
+					batches.put(records);
+				}
+			}
+			for (int i = 0; i < shipThreads; i++) {
+				batches.put(END_OF_BATCHES);
+			}
+		}
+		return null;
+	}
+
+	private Void ship() throws Exception {
+		List<LogCollect> records;
+		while ((records = batches.take()) != END_OF_BATCHES) {
+			sink.ship(records);
+			shipped.addAndGet(records.size());
+		}
+		return null;
+	}
+
+	public static class Builder {
+		private final Iterator<SearchHit[]> source;
+		private final LogSink sink;
+		private final List<LogStage> stages = new ArrayList<>();
+		private int decodeThreads = 1;
+		private int shipThreads = 1;
+		private int queueCapacity = 4;
+
+		private Builder(Iterator<SearchHit[]> source, LogSink sink) {
+			this.source = source;
+			this.sink = sink;
+		}
+
+		/**
+		 * add a stage run by the decode workers after decoding, in the order added
+		 */
+		public Builder addStage(LogStage stage) {
+			stages.add(stage);
+			return this;
+		}
+
+		public Builder setDecodeThreads(int decodeThreads) {
+			this.decodeThreads = atLeastOne("decodeThreads", decodeThreads);
+			return this;
+		}
+
+		public Builder setShipThreads(int shipThreads) {
+			this.shipThreads = atLeastOne("shipThreads", shipThreads);
+			return this;
+		}
+
+		/**
+		 * capacity of each queue between two stages, in pages
+		 */
+		public Builder setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = atLeastOne("queueCapacity", queueCapacity);
+			return this;
+		}
+
+		private static int atLeastOne(String name, int value) {
+			if (value < 1) {
+				throw new IllegalArgumentException(name + " must be at least 1 but was " + value);
+			}
+			return value;
+		}
+
+		public ExportPipeline build() {
+			return new ExportPipeline(this);
+		}
+	}
+}
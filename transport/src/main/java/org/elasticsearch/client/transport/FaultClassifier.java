@@ -0,0 +1,285 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.regex.Pattern;
+
+import org.elasticsearch.common.io.Streams;
+
+/**
+ * Sets the faulttype and severity of every record from the first FaultRule its content
+ * matches, records matching no rule are passed on unchanged.
+ *
+ * The keywords and exceptions of all rules are compiled into one Aho-Corasick automaton,
+ * a complete transition table over lower case ASCII, so a line is classified in a single
+ * pass with one table lookup per char whatever the number of rules. The regex of a rule
+ * is only run on lines in which the automaton found one of its words. The tables are not
+ * changed after construction, one classifier is shared by all workers of a pipeline.
+ */
+public class FaultClassifier implements LogStage {
+
+	private static final String DEFAULT_RULES = "/fault-rules.json";
+
+	private static final int ALPHABET = 128;
+
+	private final FaultRule[] rules;
+	private final Pattern[] patterns;
+	// rules without words, tried after the scan
+	private final int[] unconditional;
+
+	// transitions, state * ALPHABET + char
+	private final int[] delta;
+	// the words ending in a state, including those of its suffix states, null if none
+	private final int[][] output;
+	private final int[] wordLength;
+	private final int[] wordRule;
+	// whether a word is the ending of a longer word (an exception) or a whole word
+	private final boolean[] wordSuffix;
+
+	/**
+	 * @param rules in the order they are tried
+	 */
+	public FaultClassifier(List<FaultRule> rules) {
+		this.rules = rules.toArray(new FaultRule[rules.size()]);
+		this.patterns = new Pattern[this.rules.length];
+
+		List<String> words = new ArrayList<>();
+		List<Integer> ruleOfWord = new ArrayList<>();
+		List<Boolean> suffixOfWord = new ArrayList<>();
+		List<Integer> withoutWords = new ArrayList<>();
+		for (int r = 0; r < this.rules.length; r++) {
+			FaultRule rule = this.rules[r];
+			if (rule.getRegex() != null) {
+				patterns[r] = Pattern.compile(rule.getRegex());
+			}
+			for (String keyword : rule.getKeywords()) {
+				words.add(word(rule, keyword));
+				ruleOfWord.add(r);
+				suffixOfWord.add(false);
+			}
+			for (String exception : rule.getExceptions()) {
+				words.add(word(rule, exception));
+				ruleOfWord.add(r);
+				suffixOfWord.add(true);
+			}
+			if (rule.getKeywords().isEmpty() && rule.getExceptions().isEmpty()) {
+				withoutWords.add(r);
+			}
+		}
+		this.unconditional = withoutWords.stream().mapToInt(Integer::intValue).toArray();
+		this.wordLength = words.stream().mapToInt(String::length).toArray();
+		this.wordRule = ruleOfWord.stream().mapToInt(Integer::intValue).toArray();
+		this.wordSuffix = new boolean[words.size()];
+		for (int w = 0; w < wordSuffix.length; w++) {
+			wordSuffix[w] = suffixOfWord.get(w);
+		}
+
+		// the trie of the words, -1 for a missing child
+		int[] trie = new int[ALPHABET];
+		Arrays.fill(trie, -1);
+		int states = 1;
+		List<int[]> ending = new ArrayList<>();
+		ending.add(null);
+		for (int w = 0; w < words.size(); w++) {
+			int state = 0;
+			for (char c : words.get(w).toCharArray()) {
+				int next = trie[state * ALPHABET + c];
+				if (next < 0) {
+					next = states++;
+					if (states * ALPHABET > trie.length) {
+						int length = trie.length;
+						trie = Arrays.copyOf(trie, length * 2);
+						Arrays.fill(trie, length, trie.length, -1);
+					}
+					trie[state * ALPHABET + c] = next;
+					ending.add(null);
+				}
+				state = next;
+			}
+			ending.set(state, append(ending.get(state), w));
+		}
+
+		// breadth first, the missing transitions of a state are those of its failure state,
+		// which is closer to the root and complete already
+		this.delta = new int[states * ALPHABET];
+		this.output = new int[states][];
+		int[] failure = new int[states];
+		Queue<Integer> queue = new ArrayDeque<>();
+		for (int c = 0; c < ALPHABET; c++) {
+			int child = trie[c];
+			if (child > 0) {
+				delta[c] = child;
+				queue.add(child);
+			}
+		}
+		output[0] = ending.get(0);
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			output[state] = concat(ending.get(state), output[failure[state]]);
+			for (int c = 0; c < ALPHABET; c++) {
+				int child = trie[state * ALPHABET + c];
+				if (child > 0) {
+					failure[child] = delta[failure[state] * ALPHABET + c];
+					delta[state * ALPHABET + c] = child;
+					queue.add(child);
+				} else {
+					delta[state * ALPHABET + c] = delta[failure[state] * ALPHABET + c];
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a classifier with the rules of fault-rules.json on the classpath
+	 */
+	public static FaultClassifier defaults() {
+		try (InputStream in = FaultClassifier.class.getResourceAsStream(DEFAULT_RULES)) {
+			if (in == null) {
+				throw new IllegalStateException(DEFAULT_RULES + " is not on the classpath");
+			}
+			return new FaultClassifier(FaultRule.parse(Streams.copyToString(
+					new InputStreamReader(in, StandardCharsets.UTF_8))));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @param line
+	 * @return the first rule the line matches, null if none
+	 */
+	public FaultRule classify(CharSequence line) {
+		int best = rules.length;
+		// rules whose words were found but whose regex was not
+		long[] rejected = null;
+		int state = 0;
+		int length = line.length();
+		for (int i = 0; i < length && best > 0; i++) {
+			char c = line.charAt(i);
+			if (c >= ALPHABET) {
+				// no word has it, start over
+				state = 0;
+				continue;
+			}
+			if (c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+			}
+			state = delta[state * ALPHABET + c];
+			int[] words = output[state];
+			if (words == null) {
+				continue;
+			}
+			for (int w : words) {
+				int rule = wordRule[w];
+				if (rule >= best || !bounded(line, i - wordLength[w] + 1, i, wordSuffix[w])) {
+					continue;
+				}
+				if (rejected != null && (rejected[rule >> 6] & (1L << rule)) != 0) {
+					continue;
+				}
+				if (patterns[rule] == null || patterns[rule].matcher(line).find()) {
+					best = rule;
+				} else {
+					if (rejected == null) {
+						rejected = new long[(rules.length >> 6) + 1];
+					}
+					rejected[rule >> 6] |= 1L << rule;
+				}
+			}
+		}
+		for (int rule : unconditional) {
+			if (rule >= best) {
+				break;
+			}
+			if (patterns[rule] == null || patterns[rule].matcher(line).find()) {
+				best = rule;
+				break;
+			}
+		}
+		return best < rules.length ? rules[best] : null;
+	}
+
+	@Override
+	public List<LogCollect> process(List<LogCollect> records) {
+		for (LogCollect record : records) {
+			FaultRule rule = record.getContent() == null ? null : classify(record.getContent());
+			if (rule != null) {
+				record.setFaulttype(rule.getFaulttype());
+				record.setSeverity(rule.getSeverity());
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * classify the records of a batch in place
+	 * @param batch
+	 */
+	public void process(LogCollectBatch batch) {
+		for (int row = 0; row < batch.size(); row++) {
+			String content = batch.getContent(row);
+			FaultRule rule = content == null ? null : classify(content);
+			if (rule != null) {
+				batch.setFaulttype(row, rule.getFaulttype());
+				batch.setSeverity(row, rule.getSeverity());
+			}
+		}
+	}
+
+	/**
+	 * a whole word has no letter or digit next to it, an ending only needs it at its end,
+	 * a side ending in a space or punctuation needs nothing
+	 */
+	private static boolean bounded(CharSequence line, int start, int end, boolean suffix) {
+		if (!suffix && isWordChar(line.charAt(start)) && start > 0 && isWordChar(line.charAt(start - 1))) {
+			return false;
+		}
+		return !(isWordChar(line.charAt(end)) && end + 1 < line.length() && isWordChar(line.charAt(end + 1)));
+	}
+
+	private static boolean isWordChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
+	private static String word(FaultRule rule, String word) {
+		if (word.isEmpty()) {
+			throw new IllegalArgumentException("rule [" + rule.getFaulttype() + "] has an empty word");
+		}
+		for (int i = 0; i < word.length(); i++) {
+			if (word.charAt(i) >= ALPHABET) {
+				throw new IllegalArgumentException("rule [" + rule.getFaulttype() + "] has a non ASCII word [" + word + "]");
+			}
+		}
+		return word.toLowerCase(Locale.ROOT);
+	}
+
+	private static int[] append(int[] values, int value) {
+		if (values == null) {
+			return new int[] { value };
+		}
+		int[] appended = Arrays.copyOf(values, values.length + 1);
+		appended[values.length] = value;
+		return appended;
+	}
+
+	private static int[] concat(int[] first, int[] second) {
+		if (first == null) {
+			return second;
+		}
+		if (second == null) {
+			return first;
+		}
+		int[] both = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, both, first.length, second.length);
+		return both;
+	}
+}
@@ -0,0 +1,86 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * One rule of a FaultClassifier, a line matching it gets the faulttype and severity of the
+ * rule. The first matching rule of the list wins, so the most specific rules go first.
+ *
+ * keywords    whole words or phrases, "timed out" does not match "timed outside"
+ * exceptions  endings of words, "Exception" matches java.net.ConnectException
+ * regex       a line only matches if the regex is found as well; it is only tried on lines
+ *             which contain a keyword or exception of the rule, a rule without any is
+ *             tried on every line
+ *
+ * keywords and exceptions are ASCII and compared case insensitive. A rule with neither
+ * keywords, exceptions nor regex matches every line. Rules are read from a JSON array, e.g.
+ * [{"faulttype":"oom","severity":"critical","exceptions":["OutOfMemoryError"]}]
+ */
+public class FaultRule {
+
+	private String faulttype;
+	private String severity;
+	private List<String> keywords = Collections.emptyList();
+	private List<String> exceptions = Collections.emptyList();
+	private String regex;
+
+	/**
+	 * @param file JSON array of rules, in the order they are tried
+	 * @return
+	 * @throws IOException
+	 */
+	public static List<FaultRule> load(Path file) throws IOException {
+		return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+	}
+
+	public static List<FaultRule> parse(String json) {
+		return JSON.parseArray(json, FaultRule.class);
+	}
+
+	public String getFaulttype() {
+		return faulttype;
+	}
+
+	public void setFaulttype(String faulttype) {
+		this.faulttype = faulttype;
+	}
+
+	public String getSeverity() {
+		return severity;
+	}
+
+	public void setSeverity(String severity) {
+		this.severity = severity;
+	}
+
+	public List<String> getKeywords() {
+		return keywords;
+	}
+
+	public void setKeywords(List<String> keywords) {
+		this.keywords = keywords == null ? Collections.emptyList() : keywords;
+	}
+
+	public List<String> getExceptions() {
+		return exceptions;
+	}
+
+	public void setExceptions(List<String> exceptions) {
+		this.exceptions = exceptions == null ? Collections.emptyList() : exceptions;
+	}
+
+	public String getRegex() {
+		return regex;
+	}
+
+	public void setRegex(String regex) {
+		this.regex = regex;
+	}
+}
@@ -0,0 +1,180 @@
+package org.elasticsearch.client.transport;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * What a search fetches of its hits, so the shards only compute and send what the caller reads.
+ *
+ * A profile projects the _source onto the includes minus the excludes, or drops it, and adds
+ * docvalue fields, which keyword and date fields read from the column store instead of the
+ * stored source. It turns explain off, which otherwise has every shard build a scoring
+ * explanation of every hit. An unordered profile sorts by _doc, the cheapest order for a
+ * scroll that visits all hits anyway.
+ *
+ * Queries of log lines only select, nothing is ranked, so they belong into filter context,
+ * see {@link #filter(QueryBuilder...)}: no scores are computed and the clauses can be cached.
+ */
+public class FetchProfile {
+
+	/**
+	 * the fields LogCollectDecoder reads, from the fluentd source
+	 */
+	public static final FetchProfile LOG_COLLECT = builder()
+			.setIncludes("log", "@timestamp", "kubernetes.host", "kubernetes.pod_name", "kubernetes.container_name")
+			.build();
+
+	/**
+	 * LOG_COLLECT for exports which do not need the hits in @timestamp order
+	 */
+	public static final FetchProfile LOG_COLLECT_UNORDERED = builder()
+			.setIncludes("log", "@timestamp", "kubernetes.host", "kubernetes.pod_name", "kubernetes.container_name")
+			.setUnordered(true)
+			.build();
+
+	/**
+	 * neither source nor fields, in _doc order, for searches that only count or touch the hits
+	 */
+	public static final FetchProfile NONE = builder()
+			.setFetchSource(false)
+			.setUnordered(true)
+			.build();
+
+	/**
+	 * the log line from the source, where and when it was logged from the docvalues; the
+	 * kubernetes fields are text with a keyword subfield in the 5.x dynamic mapping and the
+	 * logstash template, and text has no docvalues, so their .keyword subfields are read
+	 */
+	public static final FetchProfile ALERT = builder()
+			.setIncludes("log")
+			.setDocValueFields("@timestamp", "kubernetes.host.keyword", "kubernetes.pod_name.keyword",
+					"kubernetes.container_name.keyword")
+			.build();
+
+	private final boolean fetchSource;
+	private final String[] includes;
+	private final String[] excludes;
+	private final String[] docValueFields;
+	private final boolean explain;
+	private final boolean unordered;
+
+	private FetchProfile(Builder builder) {
+		this.fetchSource = builder.fetchSource;
+		this.includes = builder.includes;
+		this.excludes = builder.excludes;
+		this.docValueFields = builder.docValueFields;
+		this.explain = builder.explain;
+		this.unordered = builder.unordered;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @param search
+	 * @return the search, fetching what the profile holds
+	 */
+	public SearchRequestBuilder apply(SearchRequestBuilder search) {
+		SearchRequest request = search.request();
+		if (request.source() == null) {
+			request.source(new SearchSourceBuilder());
+		}
+		apply(request.source());
+		return search;
+	}
+
+	void apply(SearchSourceBuilder source) {
+		if (!fetchSource) {
+			source.fetchSource(false);
+		} else if (includes.length > 0 || excludes.length > 0) {
+			source.fetchSource(includes, excludes);
+		}
+		for (String field : docValueFields) {
+			source.docValueField(field);
+		}
+		source.explain(explain);
+		if (unordered) {
+			source.sort("_doc", SortOrder.ASC);
+		}
+	}
+
+	/**
+	 * @param clauses
+	 * @return a query matching the hits of all clauses, in filter context
+	 */
+	public static BoolQueryBuilder filter(QueryBuilder... clauses) {
+		BoolQueryBuilder query = boolQuery();
+		for (QueryBuilder clause : clauses) {
+			query.filter(clause);
+		}
+		return query;
+	}
+
+	public static class Builder {
+		private boolean fetchSource = true;
+		private String[] includes = new String[0];
+		private String[] excludes = new String[0];
+		private String[] docValueFields = new String[0];
+		private boolean explain;
+		private boolean unordered;
+
+		private Builder() {
+		}
+
+		/**
+		 * fetch no _source at all, e.g. when the docvalue fields are all that is read
+		 */
+		public Builder setFetchSource(boolean fetchSource) {
+			this.fetchSource = fetchSource;
+			return this;
+		}
+
+		/**
+		 * fields of the _source to fetch, all of them by default
+		 */
+		public Builder setIncludes(String... includes) {
+			this.includes = includes;
+			return this;
+		}
+
+		public Builder setExcludes(String... excludes) {
+			this.excludes = excludes;
+			return this;
+		}
+
+		/**
+		 * keyword, numeric or date fields to read from the docvalues into the fields of a hit
+		 */
+		public Builder setDocValueFields(String... docValueFields) {
+			this.docValueFields = docValueFields;
+			return this;
+		}
+
+		/**
+		 * only for debugging a query, every shard explains the score of every hit
+		 */
+		public Builder setExplain(boolean explain) {
+			this.explain = explain;
+			return this;
+		}
+
+		/**
+		 * sort by _doc, for searches that set no sort of their own
+		 */
+		public Builder setUnordered(boolean unordered) {
+			this.unordered = unordered;
+			return this;
+		}
+
+		public FetchProfile build() {
+			return new FetchProfile(this);
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package org.elasticsearch.client.transport;
+
+import org.elasticsearch.search.SearchHit;
+
+/**
+ * Consumes one page of search hits, e.g. LoggingSearch::postHits.
+ */
+@FunctionalInterface
+public interface HitsHandler {
+
+	void handle(SearchHit[] hits) throws Exception;
+}
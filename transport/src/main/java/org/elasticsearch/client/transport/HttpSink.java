@@ -0,0 +1,289 @@
+package org.elasticsearch.client.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * Reusable client for posting batches to the backend, replaces HttpUtils.doPost.
+ *
+ * The body is framed with its exact byte length and optionally gzip compressed. In
+ * streaming mode batches are serialized straight onto the connection with chunked transfer
+ * encoding instead, so a batch never exists as one String or byte[] however large it is. The
+ * response is always read to the end, so the JDK keeps the connection alive and reuses
+ * it for the next post (pool size per host is the JDK property http.maxConnections).
+ * At most maxInFlight posts run at the same time, further callers wait.
+ */
+public class HttpSink implements LogSink {
+
+	// size of the chunks of a streamed body
+	private static final int CHUNK_SIZE = 8192;
+
+	private final URL url;
+	private final String contentType;
+	private final boolean gzip;
+	private final boolean streaming;
+	private final int connectTimeout;
+	private final int readTimeout;
+	private final Semaphore inFlight;
+
+	private HttpSink(Builder builder) {
+		try {
+			this.url = new URL(builder.url);
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException("invalid url " + builder.url, e);
+		}
+		this.contentType = builder.contentType;
+		this.gzip = builder.gzip;
+		this.streaming = builder.streaming;
+		this.connectTimeout = (int) builder.connectTimeout.millis();
+		this.readTimeout = (int) builder.readTimeout.millis();
+		this.inFlight = new Semaphore(builder.maxInFlight, true);
+	}
+
+	public static Builder builder(String url) {
+		return new Builder(url);
+	}
+
+	/**
+	 * @return the longest a ship blocks its caller, connect plus read timeout, as long as no
+	 *         more than maxInFlight callers ship at the same time
+	 */
+	public TimeValue maxStall() {
+		return TimeValue.timeValueMillis(connectTimeout + readTimeout);
+	}
+
+	@Override
+	public void ship(List<LogCollect> records) throws IOException, InterruptedException {
+		if (streaming) {
+			// a list of beans is its elements joined by ',' in fastjson
+			stream(out -> {
+				out.write('[');
+				for (int i = 0; i < records.size(); i++) {
+					if (i > 0) {
+						out.write(',');
+					}
+					JSON.writeJSONString(out, records.get(i));
+				}
+				out.write(']');
+			}, records.size());
+		} else {
+			post(JSON.toJSONString(records).getBytes(StandardCharsets.UTF_8), records.size());
+		}
+	}
+
+	@Override
+	public void ship(LogCollectBatch batch) throws IOException, InterruptedException {
+		if (streaming) {
+			stream(batch::writeJSON, batch.size());
+		} else {
+			post(batch.toJSONBytes(), batch.size());
+		}
+	}
+
+	public int post(String postData) throws IOException, InterruptedException {
+		return post(postData.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param body
+	 * @return the response code
+	 * @throws IOException if the backend can't be reached or doesn't answer with 2xx
+	 * @throws InterruptedException
+	 */
+	public int post(byte[] body) throws IOException, InterruptedException {
+		return post(body, 0);
+	}
+
+	private int post(byte[] body, int records) throws IOException, InterruptedException {
+		byte[] payload = gzip ? gzip(body) : body;
+		return send(payload.length, out -> out.write(payload), records);
+	}
+
+	private int stream(Body body, int records) throws IOException, InterruptedException {
+		return send(-1, out -> {
+			if (gzip) {
+				try (GZIPOutputStream compressed = new GZIPOutputStream(out, CHUNK_SIZE)) {
+					body.writeTo(compressed);
+				}
+			} else {
+				body.writeTo(out);
+			}
+		}, records);
+	}
+
+	/**
+	 * @param length of the body, -1 to send it chunked
+	 */
+	private int send(int length, Body body, int records) throws IOException, InterruptedException {
+		inFlight.acquire();
+		try {
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			connection.setDoOutput(true);
+			connection.setRequestMethod("POST");
+			connection.setConnectTimeout(connectTimeout);
+			connection.setReadTimeout(readTimeout);
+			connection.setRequestProperty("Accept-Charset", "utf-8");
+			connection.setRequestProperty("Content-Type", contentType);
+			if (gzip) {
+				connection.setRequestProperty("Content-Encoding", "gzip");
+			}
+			if (length >= 0) {
+				connection.setFixedLengthStreamingMode(length);
+			} else {
+				connection.setChunkedStreamingMode(CHUNK_SIZE);
+			}
+
+			long start = System.nanoTime();
+			int code;
+			CountingOutputStream out;
+			try {
+				out = new CountingOutputStream(connection.getOutputStream());
+				try {
+					body.writeTo(out);
+				} finally {
+					out.close();
+				}
+				code = connection.getResponseCode();
+			} catch (IOException e) {
+				ExportMetrics.global().recordPostFailure();
+				throw e;
+			}
+			ExportMetrics.global().recordPost((System.nanoTime() - start) / 1000, code, out.count, records);
+			return readResponse(connection, code);
+		} finally {
+			inFlight.release();
+		}
+	}
+
+	/**
+	 * drain and close the response so the connection goes back to the keep alive cache
+	 */
+	private static int readResponse(HttpURLConnection connection, int code) throws IOException {
+		InputStream in = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+		if (in != null) {
+			try {
+				byte[] buffer = new byte[4096];
+				while (in.read(buffer) != -1) {
+					// discard
+				}
+			} finally {
+				in.close();
+			}
+		}
+		if (code >= 300) {
+			throw new IOException("HTTP Request is not success, Response code is " + code);
+		}
+		return code;
+	}
+
+	private static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+		try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(body);
+		}
+		return bytes.toByteArray();
+	}
+
+	@FunctionalInterface
+	private interface Body {
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * counts the bytes that went onto the connection for the metrics
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	public static class Builder {
+		private final String url;
+		private String contentType = "application/x-www-form-urlencoded";
+		private boolean gzip = false;
+		private boolean streaming = false;
+		private TimeValue connectTimeout = TimeValue.timeValueSeconds(5);
+		private TimeValue readTimeout = TimeValue.timeValueSeconds(30);
+		private int maxInFlight = 5;
+
+		private Builder(String url) {
+			this.url = url;
+		}
+
+		public Builder setContentType(String contentType) {
+			this.contentType = contentType;
+			return this;
+		}
+
+		/**
+		 * compress request bodies, the backend has to accept Content-Encoding: gzip
+		 */
+		public Builder setGzip(boolean gzip) {
+			this.gzip = gzip;
+			return this;
+		}
+
+		/**
+		 * serialize batches straight onto the connection with chunked transfer encoding, the
+		 * backend has to accept chunked request bodies
+		 */
+		public Builder setStreaming(boolean streaming) {
+			this.streaming = streaming;
+			return this;
+		}
+
+		public Builder setConnectTimeout(TimeValue connectTimeout) {
+			this.connectTimeout = connectTimeout;
+			return this;
+		}
+
+		public Builder setReadTimeout(TimeValue readTimeout) {
+			this.readTimeout = readTimeout;
+			return this;
+		}
+
+		/**
+		 * number of posts allowed to run at the same time, defaults to 5
+		 */
+		public Builder setMaxInFlight(int maxInFlight) {
+			if (maxInFlight < 1) {
+				throw new IllegalArgumentException("maxInFlight must be at least 1 but was " + maxInFlight);
+			}
+			this.maxInFlight = maxInFlight;
+			return this;
+		}
+
+		public HttpSink build() {
+			return new HttpSink(this);
+		}
+	}
+}
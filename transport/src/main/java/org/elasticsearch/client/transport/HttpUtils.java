@@ -1,115 +1,115 @@
-package org.elasticsearch.client.transport;
-
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
-
-//String jsonString2 = JSON.toJSONString(users);
-public class HttpUtils {
-	public static String doGet(String url) throws Exception{
-		URL localURL = new URL(url);
-        
-        URLConnection connection = localURL.openConnection();
-        HttpURLConnection httpURLConnection = (HttpURLConnection)connection;
-        
-        httpURLConnection.setDoOutput(true);
-        httpURLConnection.setRequestMethod("POST");
-        httpURLConnection.setRequestProperty("Accept-Charset", "utf-8");
-        httpURLConnection.setRequestProperty("Content-Type", "application/json");
-        
-        InputStream inputStream = null;
-        InputStreamReader inputStreamReader = null;
-        BufferedReader reader = null;
-        StringBuilder resultBuffer = new StringBuilder();
-        String tempLine = null;
-        
-      //响应失败
-        if (httpURLConnection.getResponseCode() >= 300) {
-            throw new Exception("HTTP Request is not success, Response code is " + httpURLConnection.getResponseCode());
-        }
-        
-        try {
-            inputStream = httpURLConnection.getInputStream();
-            inputStreamReader = new InputStreamReader(inputStream);
-            reader = new BufferedReader(inputStreamReader);
-            
-            while ((tempLine = reader.readLine()) != null) {
-                resultBuffer.append(tempLine);
-            }
-            
-        } finally {
-            
-            if (reader != null) {
-                reader.close();
-            }
-            
-            if (inputStreamReader != null) {
-                inputStreamReader.close();
-            }
-            
-            if (inputStream != null) {
-                inputStream.close();
-            }
-            
-        }
-
-        return resultBuffer.toString();
-	}
-	
-	public static void doPost(String url,  String postData) throws Exception{
-		 
-		 URL localURL = new URL(url);
-	        
-	        URLConnection connection = localURL.openConnection();
-	        HttpURLConnection httpURLConnection = (HttpURLConnection)connection;
-	        
-	        httpURLConnection.setDoOutput(true);
-	        httpURLConnection.setRequestMethod("POST");
-	        httpURLConnection.setRequestProperty("Accept-Charset", "utf-8");
-	        httpURLConnection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-	        httpURLConnection.setRequestProperty("Content-Length", String.valueOf(postData.length()));
-	        
-	        OutputStream outputStream = null;
-	        OutputStreamWriter outputStreamWriter = null;
-	        InputStream inputStream = null;
-	        InputStreamReader inputStreamReader = null;
-	        BufferedReader reader = null;
-	        
-	        try {
-	            outputStream = httpURLConnection.getOutputStream();
-	            outputStreamWriter = new OutputStreamWriter(outputStream);
-	            
-	            outputStreamWriter.write(postData);
-	            outputStreamWriter.flush();
-	           
-	            System.out.println(httpURLConnection.getResponseCode());
-	            System.out.println("successfull");
-	        } finally {
-	            
-	            if (outputStreamWriter != null) {
-	                outputStreamWriter.close();
-	            }
-	            
-	            if (outputStream != null) {
-	                outputStream.close();
-	            }
-	            
-	            if (reader != null) {
-	                reader.close();
-	            }
-	            
-	            if (inputStreamReader != null) {
-	                inputStreamReader.close();
-	            }
-	            
-	            if (inputStream != null) {
-	                inputStream.close();
-	            }
-	        }
-	}
-}
+package org.elasticsearch.client.transport;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+
+//String jsonString2 = JSON.toJSONString(users);
+public class HttpUtils {
+	public static String doGet(String url) throws Exception{
+		URL localURL = new URL(url);
+        
+        URLConnection connection = localURL.openConnection();
+        HttpURLConnection httpURLConnection = (HttpURLConnection)connection;
+        
+        httpURLConnection.setDoOutput(true);
+        httpURLConnection.setRequestMethod("POST");
+        httpURLConnection.setRequestProperty("Accept-Charset", "utf-8");
+        httpURLConnection.setRequestProperty("Content-Type", "application/json");
+        
+        InputStream inputStream = null;
+        InputStreamReader inputStreamReader = null;
+        BufferedReader reader = null;
+        StringBuilder resultBuffer = new StringBuilder();
+        String tempLine = null;
+        
+      //响应失败
+        if (httpURLConnection.getResponseCode() >= 300) {
+            throw new Exception("HTTP Request is not success, Response code is " + httpURLConnection.getResponseCode());
+        }
+        
+        try {
+            inputStream = httpURLConnection.getInputStream();
+            inputStreamReader = new InputStreamReader(inputStream);
+            reader = new BufferedReader(inputStreamReader);
+            
+            while ((tempLine = reader.readLine()) != null) {
+                resultBuffer.append(tempLine);
+            }
+            
+        } finally {
+            
+            if (reader != null) {
+                reader.close();
+            }
+            
+            if (inputStreamReader != null) {
+                inputStreamReader.close();
+            }
+            
+            if (inputStream != null) {
+                inputStream.close();
+            }
+            
+        }
+
+        return resultBuffer.toString();
+	}
+	
+	public static void doPost(String url,  String postData) throws Exception{
+		 
+		 URL localURL = new URL(url);
+	        
+	        URLConnection connection = localURL.openConnection();
+	        HttpURLConnection httpURLConnection = (HttpURLConnection)connection;
+	        
+	        httpURLConnection.setDoOutput(true);
+	        httpURLConnection.setRequestMethod("POST");
+	        httpURLConnection.setRequestProperty("Accept-Charset", "utf-8");
+	        httpURLConnection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+	        httpURLConnection.setRequestProperty("Content-Length", String.valueOf(postData.length()));
+	        
+	        OutputStream outputStream = null;
+	        OutputStreamWriter outputStreamWriter = null;
+	        InputStream inputStream = null;
+	        InputStreamReader inputStreamReader = null;
+	        BufferedReader reader = null;
+	        
+	        try {
+	            outputStream = httpURLConnection.getOutputStream();
+	            outputStreamWriter = new OutputStreamWriter(outputStream);
+	            
+	            outputStreamWriter.write(postData);
+	            outputStreamWriter.flush();
+	           
+	            System.out.println(httpURLConnection.getResponseCode());
+	            System.out.println("successfull");
+	        } finally {
+	            
+	            if (outputStreamWriter != null) {
+	                outputStreamWriter.close();
+	            }
+	            
+	            if (outputStream != null) {
+	                outputStream.close();
+	            }
+	            
+	            if (reader != null) {
+	                reader.close();
+	            }
+	            
+	            if (inputStreamReader != null) {
+	                inputStreamReader.close();
+	            }
+	            
+	            if (inputStream != null) {
+	                inputStream.close();
+	            }
+	        }
+	}
+}
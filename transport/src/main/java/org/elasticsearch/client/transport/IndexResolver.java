@@ -0,0 +1,165 @@
+package org.elasticsearch.client.transport;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * Maps a @timestamp range to the daily logstash-YYYY.MM.DD indices that can hold it, so a
+ * search over the last hour hits one or two indices instead of every index of logstash-*.
+ *
+ * The names of the existing indices are cached and fetched again once they are older than
+ * the refresh interval. Days newer than the last fetch are always included, their index
+ * may have been created since, and searches run with lenient indices options so a missing
+ * index is skipped. The wildcard is only used when the index list is not available or the
+ * range covers every index anyway.
+ *
+ * A resolver holds the client only weakly, so it can be cached per client in a WeakHashMap
+ * and goes away with the client.
+ */
+public class IndexResolver {
+
+	private static final Logger logger = LogManager.getLogger(IndexResolver.class);
+
+	// logstash names the daily index after the UTC date of the event
+	private static final DateTimeFormatter DAY = DateTimeFormat.forPattern("yyyy.MM.dd").withZoneUTC();
+
+	// longer ranges, e.g. an open start, go to the wildcard
+	private static final int MAX_DAYS = 3660;
+
+	private final String prefix;
+	private final String wildcard;
+	private final long refreshMillis;
+	private final Supplier<String[]> lister;
+	private final LongSupplier clock;
+
+	private Set<String> indices;
+	private long fetched;
+	private long attempted = Long.MIN_VALUE;
+
+	/**
+	 * @param client
+	 * @param prefix of the daily indices, e.g. "logstash-"
+	 * @param refresh how long the index list is used before it is fetched again
+	 */
+	public IndexResolver(TransportClient client, String prefix, TimeValue refresh) {
+		this(prefix, refresh, lister(new WeakReference<>(client), prefix), System::currentTimeMillis);
+	}
+
+	IndexResolver(String prefix, TimeValue refresh, Supplier<String[]> lister, LongSupplier clock) {
+		this.prefix = prefix;
+		this.wildcard = prefix + "*";
+		this.refreshMillis = refresh.millis();
+		this.lister = lister;
+		this.clock = clock;
+	}
+
+	/**
+	 * @param from epoch millis, inclusive
+	 * @param to epoch millis, inclusive
+	 * @return the indices to search for documents with from <= @timestamp <= to
+	 */
+	public String[] resolve(long from, long to) {
+		Set<String> known = indices();
+		if (known == null) {
+			return new String[] { wildcard };
+		}
+
+		long first = TimeUnit.MILLISECONDS.toDays(from);
+		long last = TimeUnit.MILLISECONDS.toDays(to);
+		if (last - first > MAX_DAYS) {
+			return new String[] { wildcard };
+		}
+
+		long newest = TimeUnit.MILLISECONDS.toDays(fetchedAt());
+		List<String> resolved = new ArrayList<>();
+		for (long day = first; day <= last; day++) {
+			String index = prefix + DAY.print(TimeUnit.DAYS.toMillis(day));
+			if (known.contains(index) || day >= newest) {
+				resolved.add(index);
+			}
+		}
+		if (!known.isEmpty() && resolved.containsAll(known)) {
+			return new String[] { wildcard };
+		}
+		if (resolved.isEmpty()) {
+			// no index at all would search every index of the cluster, a missing one finds nothing
+			resolved.add(prefix + DAY.print(from));
+		}
+		return resolved.toArray(new String[resolved.size()]);
+	}
+
+	/**
+	 * a search over the indices of the range, indices that don't exist are ignored
+	 * @param client
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	public SearchRequestBuilder prepareSearch(TransportClient client, long from, long to) {
+		return client.prepareSearch(resolve(from, to))
+				.setIndicesOptions(IndicesOptions.lenientExpandOpen());
+	}
+
+	/**
+	 * @param client
+	 * @param indices the resolver of the client, null to search all of logstash-*
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	static SearchRequestBuilder prepareSearch(TransportClient client, IndexResolver indices, long from, long to) {
+		return indices == null ? client.prepareSearch("logstash-*") : indices.prepareSearch(client, from, to);
+	}
+
+	/**
+	 * @return the cached index names, null if they were never fetched successfully
+	 */
+	synchronized Set<String> indices() {
+		long now = clock.getAsLong();
+		if (attempted == Long.MIN_VALUE || now - attempted >= refreshMillis) {
+			attempted = now;
+			try {
+				indices = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(lister.get())));
+				fetched = now;
+			} catch (RuntimeException e) {
+				// keep the old list, try again after the refresh interval
+				logger.warn("fetching the " + wildcard + " indices failed: " + e.getMessage());
+			}
+		}
+		return indices;
+	}
+
+	private static Supplier<String[]> lister(WeakReference<TransportClient> client, String prefix) {
+		return () -> {
+			TransportClient c = client.get();
+			if (c == null) {
+				throw new IllegalStateException("the client is gone");
+			}
+			return c.admin().indices().prepareGetIndex()
+					.setIndices(prefix + "*")
+					.setIndicesOptions(IndicesOptions.lenientExpandOpen())
+					.get()
+					.getIndices();
+		};
+	}
+
+	private synchronized long fetchedAt() {
+		return fetched;
+	}
+}
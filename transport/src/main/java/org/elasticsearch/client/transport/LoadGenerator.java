@@ -0,0 +1,404 @@
+package org.elasticsearch.client.transport;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.transport.client.PreBuiltTransportClient;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * Indexes synthetic fluentd documents of kubernetes containers through a BulkProcessor,
+ * to size the cluster and to replay error storms against the exporter offline.
+ *
+ * The documents look like the ones fluentd ships: log, stream, @timestamp,
+ * kubernetes.host/pod_name/container_name/namespace_name/labels and tag, in the daily
+ * logstash-YYYY.MM.DD index. The number of hosts, pods per host and the share of error
+ * lines (an ERROR line followed by a few lines of stack trace) are configurable, as are
+ * the rate and the bulk settings. Every report interval the indexed docs/s and the bulk
+ * latency percentiles are printed, and a summary at the end; failed bulks are logged.
+ */
+public class LoadGenerator {
+
+	private static final Logger logger = LogManager.getLogger(LoadGenerator.class);
+
+	private static final DateTimeFormatter TIMESTAMP = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZZ").withZoneUTC();
+	private static final DateTimeFormatter DAY = DateTimeFormat.forPattern("yyyy.MM.dd").withZoneUTC();
+	private static final DateTimeFormatter LOG_TIME = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss,SSS").withZoneUTC();
+
+	private static final String[] APPS = { "iotdb-worker", "iotdb-master", "kafka", "zookeeper", "nginx", "spark-executor" };
+	private static final String[] INFO = {
+			"[main] INFO  org.apache.iotdb.db.engine.filenode.FileNodeProcessor - flush %d points of root.vehicle.d%d",
+			"[pool-1-thread-%d] INFO  org.apache.iotdb.db.service.JDBCService - accepted connection %d",
+			"[SyncThread:%d] WARN  FileTxnLog - fsync-ing the write ahead log took %dms which will adversely effect operation latency",
+			"GET /api/v1/status?id=%d HTTP/1.1 200 %d" };
+	private static final String[] ERRORS = {
+			"[pool-2-thread-%d] ERROR org.apache.iotdb.db.service.TSServiceImpl - execute statement %d failed",
+			"[main] ERROR org.apache.kafka.clients.NetworkClient - connection to node %d failed, exception after %dms",
+			"[Executor task launch worker-%d] ERROR Executor - Exception in task %d" };
+	private static final String[] TRACE = {
+			"java.io.IOException: Connection reset by peer",
+			"\tat sun.nio.ch.FileDispatcherImpl.read0(Native Method)",
+			"\tat sun.nio.ch.SocketDispatcher.read(SocketDispatcher.java:39)",
+			"\tat sun.nio.ch.IOUtil.readIntoNativeBuffer(IOUtil.java:223)",
+			"\tat org.apache.thrift.transport.TIOStreamTransport.read(TIOStreamTransport.java:127)" };
+
+	private final TransportClient client;
+	private final String indexPrefix;
+	private final int rate;
+	private final int hosts;
+	private final int podsPerHost;
+	private final double errorRatio;
+	private final int traceLines;
+	private final long durationMillis;
+	private final long reportMillis;
+	private final Builder bulk;
+	private final Random random;
+
+	private final Recorder bulkMicros = new Recorder(3);
+	private final Histogram totalMicros = new Histogram(3);
+	private final Map<Long, Long> bulkStarts = new ConcurrentHashMap<>();
+	private final LongAdder indexed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	// lines of the stack trace that still follow the last error line
+	private int pendingTrace;
+	private String tracePod;
+	private String traceHost;
+
+	private LoadGenerator(Builder builder) {
+		this.client = builder.client;
+		this.indexPrefix = builder.indexPrefix;
+		this.rate = builder.rate;
+		this.hosts = builder.hosts;
+		this.podsPerHost = builder.podsPerHost;
+		this.errorRatio = builder.errorRatio;
+		this.traceLines = builder.traceLines;
+		this.durationMillis = builder.duration.millis();
+		this.reportMillis = builder.reportInterval.millis();
+		this.bulk = builder;
+		this.random = new Random(builder.seed);
+	}
+
+	public static Builder builder(TransportClient client) {
+		return new Builder(client);
+	}
+
+	/**
+	 * index documents for the configured duration, then flush and wait for the last bulks
+	 * @return the number of documents indexed
+	 * @throws Exception
+	 */
+	public long run() throws Exception {
+		BulkProcessor processor = BulkProcessor.builder(client, new BulkProcessor.Listener() {
+			@Override
+			public void beforeBulk(long executionId, BulkRequest request) {
+				bulkStarts.put(executionId, System.nanoTime());
+			}
+
+			@Override
+			public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+				recordBulk(executionId);
+				int failures = 0;
+				for (BulkItemResponse item : response.getItems()) {
+					if (item.isFailed()) {
+						failures++;
+					}
+				}
+				indexed.add(request.numberOfActions() - failures);
+				failed.add(failures);
+			}
+
+			@Override
+			public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+				recordBulk(executionId);
+				failed.add(request.numberOfActions());
+				logger.warn("bulk " + executionId + " of " + request.numberOfActions() + " documents failed: " + failure.getMessage());
+			}
+		})
+				.setBulkActions(bulk.bulkActions)
+				.setBulkSize(bulk.bulkSize)
+				.setFlushInterval(bulk.flushInterval)
+				.setConcurrentRequests(bulk.concurrentRequests)
+				.setBackoffPolicy(BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(100), 3))
+				.build();
+
+		long start = System.currentTimeMillis();
+		long end = start + durationMillis;
+		long nextReport = start + reportMillis;
+		long lastReport = start;
+		long lastIndexed = 0;
+		long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+		long next = System.nanoTime();
+		long generated = 0;
+
+		try {
+			while (true) {
+				long now = System.currentTimeMillis();
+				if (now >= end) {
+					break;
+				}
+				if (now >= nextReport) {
+					long total = indexed.sum();
+					report(now - lastReport, total - lastIndexed, generated);
+					lastReport = now;
+					lastIndexed = total;
+					nextReport += reportMillis;
+				}
+				if (intervalNanos > 0) {
+					next += intervalNanos;
+					long wait = next - System.nanoTime();
+					if (wait > TimeUnit.MILLISECONDS.toNanos(1)) {
+						Thread.sleep(TimeUnit.NANOSECONDS.toMillis(wait));
+					} else if (wait < -TimeUnit.SECONDS.toNanos(1)) {
+						// the cluster fell behind by more than a second, don't burst to catch up
+						next = System.nanoTime();
+					}
+				}
+				processor.add(new IndexRequest(index(now), "fluentd").source(document(now)));
+				generated++;
+			}
+		} finally {
+			processor.awaitClose(1, TimeUnit.MINUTES);
+		}
+
+		double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+		synchronized (totalMicros) {
+			totalMicros.add(bulkMicros.getIntervalHistogram());
+			System.out.println(String.format("generated %d, indexed %d, failed %d | sustained %.0f docs/s | "
+					+ "bulk latency p50/p90/p99/max %.1f/%.1f/%.1f/%.1f ms over %d bulks",
+					generated, indexed.sum(), failed.sum(), indexed.sum() / seconds,
+					millis(totalMicros, 50), millis(totalMicros, 90), millis(totalMicros, 99),
+					totalMicros.getMaxValue() / 1000.0, totalMicros.getTotalCount()));
+		}
+		return indexed.sum();
+	}
+
+	String index(long timestamp) {
+		return indexPrefix + DAY.print(timestamp);
+	}
+
+	/**
+	 * @param timestamp
+	 * @return the next synthetic fluentd document
+	 * @throws IOException
+	 */
+	XContentBuilder document(long timestamp) throws IOException {
+		String host;
+		String pod;
+		String log;
+		String stream = "stdout";
+		if (pendingTrace > 0) {
+			// the stack trace continues in the pod of its error line
+			host = traceHost;
+			pod = tracePod;
+			log = TRACE[Math.min(traceLines - pendingTrace, TRACE.length - 1)];
+			stream = "stderr";
+			pendingTrace--;
+		} else {
+			int h = random.nextInt(hosts);
+			int p = random.nextInt(podsPerHost);
+			host = "lab" + h;
+			pod = APPS[(h * podsPerHost + p) % APPS.length] + "-" + Integer.toString(h * podsPerHost + p + 46656, 36);
+			if (random.nextDouble() < errorRatio) {
+				log = LOG_TIME.print(timestamp) + " " + String.format(ERRORS[random.nextInt(ERRORS.length)],
+						random.nextInt(16), random.nextInt(100000));
+				stream = "stderr";
+				pendingTrace = traceLines;
+				traceHost = host;
+				tracePod = pod;
+			} else {
+				log = LOG_TIME.print(timestamp) + " " + String.format(INFO[random.nextInt(INFO.length)],
+						random.nextInt(16), random.nextInt(100000));
+			}
+		}
+		String app = pod.substring(0, pod.lastIndexOf('-'));
+		String container = app.substring(0, app.indexOf('-') < 0 ? app.length() : app.indexOf('-'));
+
+		return jsonBuilder()
+				.startObject()
+					.field("log", log + "\n")
+					.field("stream", stream)
+					.startObject("kubernetes")
+						.field("container_name", container)
+						.field("namespace_name", "default")
+						.field("pod_name", pod)
+						.startObject("labels")
+							.field("name", app)
+						.endObject()
+						.field("host", host)
+					.endObject()
+					.field("@timestamp", TIMESTAMP.print(timestamp))
+					.field("tag", "kubernetes.var.log.containers." + pod + "_default_" + container + ".log")
+				.endObject();
+	}
+
+	private void recordBulk(long executionId) {
+		Long started = bulkStarts.remove(executionId);
+		if (started != null) {
+			bulkMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+		}
+	}
+
+	private void report(long intervalMillis, long indexedInInterval, long generated) {
+		Histogram interval = bulkMicros.getIntervalHistogram();
+		synchronized (totalMicros) {
+			totalMicros.add(interval);
+		}
+		System.out.println(String.format("%.0f docs/s indexed, %d generated, %d failed | bulk %d p50/p99/max %.1f/%.1f/%.1f ms",
+				indexedInInterval * 1000.0 / Math.max(1, intervalMillis), generated, failed.sum(),
+				interval.getTotalCount(), millis(interval, 50), millis(interval, 99), interval.getMaxValue() / 1000.0));
+	}
+
+	private static double millis(Histogram micros, double percentile) {
+		return micros.getValueAtPercentile(percentile) / 1000.0;
+	}
+
+	public static class Builder {
+		private final TransportClient client;
+		private String indexPrefix = "logstash-";
+		private int rate = 1000;
+		private int hosts = 4;
+		private int podsPerHost = 8;
+		private double errorRatio = 0.05;
+		private int traceLines = 4;
+		private TimeValue duration = TimeValue.timeValueMinutes(1);
+		private TimeValue reportInterval = TimeValue.timeValueSeconds(5);
+		private int bulkActions = 1000;
+		private ByteSizeValue bulkSize = new ByteSizeValue(5, ByteSizeUnit.MB);
+		private TimeValue flushInterval = TimeValue.timeValueSeconds(1);
+		private int concurrentRequests = 1;
+		private long seed = 42;
+
+		private Builder(TransportClient client) {
+			this.client = client;
+		}
+
+		public Builder setIndexPrefix(String indexPrefix) {
+			this.indexPrefix = indexPrefix;
+			return this;
+		}
+
+		/**
+		 * documents per second, 0 to index as fast as the cluster takes them
+		 */
+		public Builder setRate(int rate) {
+			if (rate < 0) {
+				throw new IllegalArgumentException("rate must not be negative but was " + rate);
+			}
+			this.rate = rate;
+			return this;
+		}
+
+		/**
+		 * number of distinct kubernetes.host and pod_name values
+		 */
+		public Builder setCardinality(int hosts, int podsPerHost) {
+			if (hosts < 1 || podsPerHost < 1) {
+				throw new IllegalArgumentException("invalid cardinality [" + hosts + ", " + podsPerHost + "]");
+			}
+			this.hosts = hosts;
+			this.podsPerHost = podsPerHost;
+			return this;
+		}
+
+		/**
+		 * share of the generated lines that are ERROR lines, each followed by traceLines lines
+		 * of stack trace from the same pod
+		 */
+		public Builder setErrorRatio(double errorRatio, int traceLines) {
+			if (errorRatio < 0 || errorRatio > 1 || traceLines < 0) {
+				throw new IllegalArgumentException("invalid error ratio [" + errorRatio + ", " + traceLines + "]");
+			}
+			this.errorRatio = errorRatio;
+			this.traceLines = traceLines;
+			return this;
+		}
+
+		public Builder setDuration(TimeValue duration) {
+			this.duration = duration;
+			return this;
+		}
+
+		public Builder setReportInterval(TimeValue reportInterval) {
+			this.reportInterval = reportInterval;
+			return this;
+		}
+
+		public Builder setBulkActions(int bulkActions) {
+			this.bulkActions = bulkActions;
+			return this;
+		}
+
+		public Builder setBulkSize(ByteSizeValue bulkSize) {
+			this.bulkSize = bulkSize;
+			return this;
+		}
+
+		public Builder setFlushInterval(TimeValue flushInterval) {
+			this.flushInterval = flushInterval;
+			return this;
+		}
+
+		public Builder setConcurrentRequests(int concurrentRequests) {
+			this.concurrentRequests = concurrentRequests;
+			return this;
+		}
+
+		public Builder setSeed(long seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		public LoadGenerator build() {
+			return new LoadGenerator(this);
+		}
+	}
+
+	/**
+	 * args: [rate docs/s] [duration seconds] [error ratio] [concurrent bulk requests]
+	 */
+	public static void main(String[] args) throws Exception {
+		Settings settings = Settings.builder()
+				.put("cluster.name", "elasticsearch")
+				.put("client.transport.sniff", true)
+				.build();
+		TransportClient client = new PreBuiltTransportClient(settings);
+		try {
+			client.addTransportAddress(
+					new InetSocketTransportAddress(InetAddress.getByName("localhost"), 9300));
+			builder(client)
+					.setRate(args.length > 0 ? Integer.parseInt(args[0]) : 1000)
+					.setDuration(TimeValue.timeValueSeconds(args.length > 1 ? Long.parseLong(args[1]) : 60))
+					.setErrorRatio(args.length > 2 ? Double.parseDouble(args[2]) : 0.05, 4)
+					.setConcurrentRequests(args.length > 3 ? Integer.parseInt(args[3]) : 1)
+					.build()
+					.run();
+		} finally {
+			client.close();
+		}
+	}
+}
@@ -0,0 +1,270 @@
+package org.elasticsearch.client.transport;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Collects records in front of a LogSink and ships them in batches, independent of the
+ * page size of the search. Like the BulkProcessor a batch is flushed when it reaches the
+ * number of records or the (estimated) size, or when its oldest record waited for the
+ * flush interval.
+ *
+ * The records wait in a LogCollectBatch, and shipped batches are cleared and reused. A batch
+ * the sink failed to ship is put back in front of the waiting records and shipped again
+ * with the next batch, the failure is thrown to the caller.
+ *
+ * With a target latency the record limit adapts to the backend: it grows by a tenth while
+ * posts are faster than the target and is halved when a post is slower.
+ */
+public class LogBatcher implements LogSink, Closeable {
+
+	// JSON field names, quotes and the logtime of one record
+	private static final int RECORD_OVERHEAD = 120;
+
+	private final LogSink sink;
+	private final int minBatchActions;
+	private final int maxBatchActions;
+	private final long maxBatchBytes;
+	private final long flushIntervalMillis;
+	private final long targetLatencyMillis;
+	private final ScheduledExecutorService scheduler;
+
+	private LogCollectBatch batch = new LogCollectBatch();
+	// shipped batches kept for reuse
+	private final ArrayDeque<LogCollectBatch> free = new ArrayDeque<>();
+	private long batchBytes;
+	private long batchStarted;
+	private volatile int batchActions;
+	private volatile Exception failure;
+
+	private LogBatcher(Builder builder) {
+		this.sink = builder.sink;
+		this.minBatchActions = builder.minBatchActions;
+		this.maxBatchActions = builder.maxBatchActions;
+		this.maxBatchBytes = builder.batchSize.getBytes();
+		this.flushIntervalMillis = builder.flushInterval.millis();
+		this.targetLatencyMillis = builder.targetLatency == null ? -1 : builder.targetLatency.millis();
+		this.batchActions = builder.targetLatency == null ? maxBatchActions : minBatchActions;
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "log-batcher-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(1, flushIntervalMillis / 2);
+		scheduler.scheduleWithFixedDelay(this::flushExpired, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	public static Builder builder(LogSink sink) {
+		return new Builder(sink);
+	}
+
+	/**
+	 * @return the current record limit of a batch
+	 */
+	public int getBatchActions() {
+		return batchActions;
+	}
+
+	public void add(LogCollect record) throws Exception {
+		LogCollectBatch full = null;
+		synchronized (this) {
+			rethrowFailure();
+			if (batch.isEmpty()) {
+				batchStarted = System.currentTimeMillis();
+			}
+			batch.add(record);
+			batchBytes += estimateBytes(record);
+			if (batch.size() >= batchActions || batchBytes >= maxBatchBytes) {
+				full = takeBatch();
+			}
+		}
+		if (full != null) {
+			send(full);
+		}
+	}
+
+	@Override
+	public void ship(List<LogCollect> records) throws Exception {
+		for (LogCollect record : records) {
+			add(record);
+		}
+	}
+
+	@Override
+	public void flush() throws Exception {
+		LogCollectBatch rest;
+		synchronized (this) {
+			rethrowFailure();
+			rest = takeBatch();
+		}
+		if (!rest.isEmpty()) {
+			send(rest);
+		}
+		sink.flush();
+	}
+
+	/**
+	 * waits for a timed flush that is still shipping, then ships the rest
+	 */
+	@Override
+	public void close() {
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			flush();
+			synchronized (this) {
+				rethrowFailure();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while the last timed flush was shipping", e);
+		} catch (Exception e) {
+			throw ExceptionsHelper.convertToRuntime(e);
+		}
+	}
+
+	private void flushExpired() {
+		LogCollectBatch expired = null;
+		synchronized (this) {
+			if (!batch.isEmpty() && System.currentTimeMillis() - batchStarted >= flushIntervalMillis) {
+				expired = takeBatch();
+			}
+		}
+		if (expired != null) {
+			try {
+				send(expired);
+			} catch (Exception e) {
+				// reported to the next caller of add or flush
+				failure = e;
+			}
+		}
+	}
+
+	private LogCollectBatch takeBatch() {
+		LogCollectBatch taken = batch;
+		batch = free.isEmpty() ? new LogCollectBatch(Math.min(taken.size() + 16, batchActions)) : free.pop();
+		batchBytes = 0;
+		return taken;
+	}
+
+	private void send(LogCollectBatch records) throws Exception {
+		long start = System.nanoTime();
+		try {
+			sink.ship(records);
+		} catch (Exception e) {
+			putBack(records);
+			throw e;
+		}
+		records.clear();
+		synchronized (this) {
+			if (free.size() < 2) {
+				free.push(records);
+			}
+		}
+		if (targetLatencyMillis > 0) {
+			adapt(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+	}
+
+	/**
+	 * put the records of a failed batch in front of the ones added since
+	 */
+	private synchronized void putBack(LogCollectBatch failed) {
+		if (batch.isEmpty()) {
+			batchStarted = System.currentTimeMillis();
+		}
+		failed.addAll(batch.toList());
+		batch.clear();
+		if (free.size() < 2) {
+			free.push(batch);
+		}
+		batch = failed;
+		batchBytes = 0;
+		for (LogCollect record : failed.toList()) {
+			batchBytes += estimateBytes(record);
+		}
+	}
+
+	private synchronized void adapt(long latencyMillis) {
+		if (latencyMillis <= targetLatencyMillis) {
+			batchActions = Math.min(maxBatchActions, batchActions + Math.max(1, batchActions / 10));
+		} else {
+			batchActions = Math.max(minBatchActions, batchActions / 2);
+		}
+	}
+
+	private void rethrowFailure() throws Exception {
+		Exception e = failure;
+		if (e != null) {
+			failure = null;
+			throw e;
+		}
+	}
+
+	static long estimateBytes(LogCollect record) {
+		return RECORD_OVERHEAD + length(record.getContent()) + length(record.getHostip())
+				+ length(record.getSoftware()) + length(record.getProcessname())
+				+ length(record.getFaulttype()) + length(record.getSeverity()) + length(record.getUser());
+	}
+
+	private static int length(String value) {
+		return value == null ? 0 : value.length();
+	}
+
+	public static class Builder {
+		private final LogSink sink;
+		private int minBatchActions = 100;
+		private int maxBatchActions = 5000;
+		private ByteSizeValue batchSize = new ByteSizeValue(5, ByteSizeUnit.MB);
+		private TimeValue flushInterval = TimeValue.timeValueSeconds(5);
+		private TimeValue targetLatency;
+
+		private Builder(LogSink sink) {
+			this.sink = sink;
+		}
+
+		/**
+		 * records per batch, without a target latency always maxBatchActions
+		 */
+		public Builder setBatchActions(int minBatchActions, int maxBatchActions) {
+			if (minBatchActions < 1 || maxBatchActions < minBatchActions) {
+				throw new IllegalArgumentException("invalid batch actions [" + minBatchActions + ", " + maxBatchActions + "]");
+			}
+			this.minBatchActions = minBatchActions;
+			this.maxBatchActions = maxBatchActions;
+			return this;
+		}
+
+		public Builder setBatchSize(ByteSizeValue batchSize) {
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		public Builder setFlushInterval(TimeValue flushInterval) {
+			this.flushInterval = flushInterval;
+			return this;
+		}
+
+		/**
+		 * adapt the records per batch to keep posts below this latency
+		 */
+		public Builder setTargetLatency(TimeValue targetLatency) {
+			this.targetLatency = targetLatency;
+			return this;
+		}
+
+		public LogBatcher build() {
+			return new LogBatcher(this);
+		}
+	}
+}
@@ -1,85 +1,105 @@
-package org.elasticsearch.client.transport;
-
-import java.util.Date;
-
-public class LogCollect {
-    private Integer id;
-
-    private Date logtime;
-
-    private String hostip;
-
-    private String software;
-
-    private String processname;
-
-    private String faulttype;
-
-    private String user;
-
-    private String content;
-
-    public Integer getId() {
-        return id;
-    }
-
-    public void setId(Integer id) {
-        this.id = id;
-    }
-
-    public Date getLogtime() {
-        return logtime;
-    }
-
-    public void setLogtime(Date logtime) {
-        this.logtime = logtime;
-    }
-
-    public String getHostip() {
-        return hostip;
-    }
-
-    public void setHostip(String hostip) {
-        this.hostip = hostip == null ? null : hostip.trim();
-    }
-
-    public String getSoftware() {
-        return software;
-    }
-
-    public void setSoftware(String software) {
-        this.software = software == null ? null : software.trim();
-    }
-
-    public String getProcessname() {
-        return processname;
-    }
-
-    public void setProcessname(String processname) {
-        this.processname = processname == null ? null : processname.trim();
-    }
-
-    public String getFaulttype() {
-        return faulttype;
-    }
-
-    public void setFaulttype(String faulttype) {
-        this.faulttype = faulttype == null ? null : faulttype.trim();
-    }
-
-    public String getUser() {
-        return user;
-    }
-
-    public void setUser(String user) {
-        this.user = user == null ? null : user.trim();
-    }
-
-    public String getContent() {
-        return content;
-    }
-
-    public void setContent(String content) {
-        this.content = content == null ? null : content.trim();
-    }
-}
+package org.elasticsearch.client.transport;
+
+import java.util.Date;
+
+public class LogCollect {
+    private Integer id;
+
+    private Date logtime;
+
+    private String hostip;
+
+    private String software;
+
+    private String processname;
+
+    private String faulttype;
+
+    private String severity;
+
+    private String user;
+
+    private String content;
+
+    private Integer count;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Date getLogtime() {
+        return logtime;
+    }
+
+    public void setLogtime(Date logtime) {
+        this.logtime = logtime;
+    }
+
+    public String getHostip() {
+        return hostip;
+    }
+
+    public void setHostip(String hostip) {
+        this.hostip = hostip == null ? null : hostip.trim();
+    }
+
+    public String getSoftware() {
+        return software;
+    }
+
+    public void setSoftware(String software) {
+        this.software = software == null ? null : software.trim();
+    }
+
+    public String getProcessname() {
+        return processname;
+    }
+
+    public void setProcessname(String processname) {
+        this.processname = processname == null ? null : processname.trim();
+    }
+
+    public String getFaulttype() {
+        return faulttype;
+    }
+
+    public void setFaulttype(String faulttype) {
+        this.faulttype = faulttype == null ? null : faulttype.trim();
+    }
+
+    public String getSeverity() {
+        return severity;
+    }
+
+    public void setSeverity(String severity) {
+        this.severity = severity == null ? null : severity.trim();
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user == null ? null : user.trim();
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content == null ? null : content.trim();
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,467 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import com.alibaba.fastjson.serializer.SerializeWriter;
+
+/**
+ * A batch of LogCollect records stored column by column.
+ *
+ * hostip, software, processname, faulttype, severity and user repeat across nearly every
+ * record, they are stored as int codes into a dictionary the batch shares between its
+ * columns, so each distinct value exists once. logtime is a primitive epoch millis column,
+ * id and count are primitive ints. The arrays survive clear(), a batch reused for every
+ * page allocates nothing but the content Strings once it reached its working size.
+ *
+ * toJSONBytes() writes the same JSON as JSON.toJSONBytes(toList()) without building the
+ * records, writeJSON(OutputStream) streams it in chunks. Not thread safe.
+ */
+public class LogCollectBatch {
+
+	private static final int NULL = -1;
+	private static final long NULL_TIME = Long.MIN_VALUE;
+	private static final int NULL_INT = Integer.MIN_VALUE;
+
+	// chars of JSON written to a stream at once
+	private static final int CHUNK = 8192;
+
+	// the dictionary starts over on clear() once it holds more distinct values
+	private static final int MAX_DICTIONARY = 1 << 16;
+
+	private int size;
+	private int[] id;
+	private long[] logtime;
+	private int[] hostip;
+	private int[] software;
+	private int[] processname;
+	private int[] faulttype;
+	private int[] severity;
+	private int[] user;
+	private String[] content;
+	private int[] count;
+
+	private String[] values = new String[64];
+	private int valueCount;
+	// open addressing, holds code + 1 so that 0 marks a free slot
+	private int[] table = new int[128];
+
+	public LogCollectBatch() {
+		this(128);
+	}
+
+	public LogCollectBatch(int capacity) {
+		allocate(Math.max(1, capacity));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * drop all records, the arrays are kept for the next records
+	 */
+	public void clear() {
+		Arrays.fill(content, 0, size, null);
+		size = 0;
+		if (valueCount > MAX_DICTIONARY) {
+			Arrays.fill(values, 0, valueCount, null);
+			Arrays.fill(table, 0);
+			valueCount = 0;
+		}
+	}
+
+	/**
+	 * append an empty record
+	 * @return its row
+	 */
+	public int addRow() {
+		if (size == logtime.length) {
+			grow(size * 2);
+		}
+		int row = size++;
+		id[row] = NULL_INT;
+		logtime[row] = NULL_TIME;
+		hostip[row] = NULL;
+		software[row] = NULL;
+		processname[row] = NULL;
+		faulttype[row] = NULL;
+		severity[row] = NULL;
+		user[row] = NULL;
+		content[row] = null;
+		count[row] = NULL_INT;
+		return row;
+	}
+
+	public void add(LogCollect record) {
+		int row = addRow();
+		if (record.getId() != null) {
+			id[row] = record.getId();
+		}
+		if (record.getLogtime() != null) {
+			logtime[row] = record.getLogtime().getTime();
+		}
+		hostip[row] = code(record.getHostip());
+		software[row] = code(record.getSoftware());
+		processname[row] = code(record.getProcessname());
+		faulttype[row] = code(record.getFaulttype());
+		severity[row] = code(record.getSeverity());
+		user[row] = code(record.getUser());
+		content[row] = record.getContent();
+		if (record.getCount() != null) {
+			count[row] = record.getCount();
+		}
+	}
+
+	public void addAll(List<LogCollect> records) {
+		for (LogCollect record : records) {
+			add(record);
+		}
+	}
+
+	/**
+	 * drop the records the predicate rejects, the others keep their order
+	 * @param keep called once per row, in order
+	 */
+	public void retain(IntPredicate keep) {
+		int kept = 0;
+		for (int row = 0; row < size; row++) {
+			if (!keep.test(row)) {
+				continue;
+			}
+			if (kept != row) {
+				id[kept] = id[row];
+				logtime[kept] = logtime[row];
+				hostip[kept] = hostip[row];
+				software[kept] = software[row];
+				processname[kept] = processname[row];
+				faulttype[kept] = faulttype[row];
+				severity[kept] = severity[row];
+				user[kept] = user[row];
+				content[kept] = content[row];
+				count[kept] = count[row];
+			}
+			kept++;
+		}
+		Arrays.fill(content, kept, size, null);
+		size = kept;
+	}
+
+	public LogCollect get(int row) {
+		LogCollect record = new LogCollect();
+		record.setId(id[row] == NULL_INT ? null : id[row]);
+		record.setLogtime(logtime[row] == NULL_TIME ? null : new Date(logtime[row]));
+		record.setHostip(getHostip(row));
+		record.setSoftware(getSoftware(row));
+		record.setProcessname(getProcessname(row));
+		record.setFaulttype(getFaulttype(row));
+		record.setSeverity(getSeverity(row));
+		record.setUser(getUser(row));
+		record.setContent(content[row]);
+		record.setCount(count[row] == NULL_INT ? null : count[row]);
+		return record;
+	}
+
+	public List<LogCollect> toList() {
+		List<LogCollect> records = new ArrayList<>(size);
+		for (int row = 0; row < size; row++) {
+			records.add(get(row));
+		}
+		return records;
+	}
+
+	/**
+	 * @param value
+	 * @return the dictionary code of the value, -1 for null
+	 */
+	public int code(String value) {
+		if (value == null) {
+			return NULL;
+		}
+		value = value.trim();
+		int hash = value.hashCode();
+		int mask = table.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int code = table[slot] - 1;
+			if (code == NULL) {
+				return insert(slot, value);
+			}
+			if (values[code].equals(value)) {
+				return code;
+			}
+		}
+	}
+
+	/**
+	 * the dictionary code of a value in a char buffer, no String is allocated for a value
+	 * the dictionary already holds
+	 */
+	public int code(char[] chars, int offset, int length) {
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		int mask = table.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int code = table[slot] - 1;
+			if (code == NULL) {
+				return insert(slot, new String(chars, offset, length));
+			}
+			if (equals(values[code], chars, offset, length)) {
+				return code;
+			}
+		}
+	}
+
+	public long getLogtime(int row) {
+		return logtime[row];
+	}
+
+	public void setLogtime(int row, long millis) {
+		logtime[row] = millis;
+	}
+
+	public String getHostip(int row) {
+		return value(hostip[row]);
+	}
+
+	public void setHostipCode(int row, int code) {
+		hostip[row] = code;
+	}
+
+	public String getSoftware(int row) {
+		return value(software[row]);
+	}
+
+	public void setSoftwareCode(int row, int code) {
+		software[row] = code;
+	}
+
+	public String getProcessname(int row) {
+		return value(processname[row]);
+	}
+
+	public void setProcessnameCode(int row, int code) {
+		processname[row] = code;
+	}
+
+	public String getFaulttype(int row) {
+		return value(faulttype[row]);
+	}
+
+	public void setFaulttype(int row, String value) {
+		faulttype[row] = code(value);
+	}
+
+	public String getSeverity(int row) {
+		return value(severity[row]);
+	}
+
+	public void setSeverity(int row, String value) {
+		severity[row] = code(value);
+	}
+
+	public String getUser(int row) {
+		return value(user[row]);
+	}
+
+	public void setUser(int row, String value) {
+		user[row] = code(value);
+	}
+
+	public String getContent(int row) {
+		return content[row];
+	}
+
+	public void setContent(int row, String value) {
+		content[row] = value == null ? null : value.trim();
+	}
+
+	/**
+	 * @return the records as JSON, in the shape fastjson gives a List of LogCollect
+	 */
+	public byte[] toJSONBytes() {
+		SerializeWriter out = new SerializeWriter();
+		try {
+			writeJSON(out);
+			return out.toBytes(StandardCharsets.UTF_8);
+		} finally {
+			out.close();
+		}
+	}
+
+	public String toJSONString() {
+		SerializeWriter out = new SerializeWriter();
+		try {
+			writeJSON(out);
+			return out.toString();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * fastjson writes the non-null properties sorted by name and a Date as epoch millis
+	 */
+	public void writeJSON(SerializeWriter out) {
+		out.write('[');
+		for (int row = 0; row < size; row++) {
+			if (row > 0) {
+				out.write(',');
+			}
+			writeRecord(out, row);
+		}
+		out.write(']');
+	}
+
+	/**
+	 * write the JSON to a stream a few records at a time, at most about CHUNK chars of the
+	 * batch are held as text however large the batch is
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeJSON(OutputStream out) throws IOException {
+		SerializeWriter chunk = new SerializeWriter();
+		try {
+			chunk.write('[');
+			for (int row = 0; row < size; row++) {
+				if (row > 0) {
+					chunk.write(',');
+				}
+				writeRecord(chunk, row);
+				if (chunk.size() >= CHUNK) {
+					chunk.writeToEx(out, StandardCharsets.UTF_8);
+					// close hands the buffer back to fastjson, the next writer takes it again
+					chunk.close();
+					chunk = new SerializeWriter();
+				}
+			}
+			chunk.write(']');
+			chunk.writeToEx(out, StandardCharsets.UTF_8);
+		} finally {
+			chunk.close();
+		}
+	}
+
+	private void writeRecord(SerializeWriter out, int row) {
+		out.write('{');
+		boolean first = true;
+		first = field(out, first, "content", content[row]);
+		if (count[row] != NULL_INT) {
+			first = name(out, first, "count");
+			out.writeInt(count[row]);
+		}
+		first = field(out, first, "faulttype", value(faulttype[row]));
+		first = field(out, first, "hostip", value(hostip[row]));
+		if (id[row] != NULL_INT) {
+			first = name(out, first, "id");
+			out.writeInt(id[row]);
+		}
+		if (logtime[row] != NULL_TIME) {
+			first = name(out, first, "logtime");
+			out.writeLong(logtime[row]);
+		}
+		first = field(out, first, "processname", value(processname[row]));
+		first = field(out, first, "severity", value(severity[row]));
+		first = field(out, first, "software", value(software[row]));
+		field(out, first, "user", value(user[row]));
+		out.write('}');
+	}
+
+	private static boolean field(SerializeWriter out, boolean first, String name, String value) {
+		if (value == null) {
+			return first;
+		}
+		name(out, first, name);
+		out.writeString(value);
+		return false;
+	}
+
+	private static boolean name(SerializeWriter out, boolean first, String name) {
+		if (!first) {
+			out.write(',');
+		}
+		out.write('"');
+		out.write(name);
+		out.write("\":");
+		return false;
+	}
+
+	private String value(int code) {
+		return code == NULL ? null : values[code];
+	}
+
+	private int insert(int slot, String value) {
+		if (valueCount == values.length) {
+			values = Arrays.copyOf(values, valueCount * 2);
+		}
+		int code = valueCount++;
+		values[code] = value;
+		table[slot] = code + 1;
+		// keep the table at most half full
+		if (valueCount * 2 > table.length) {
+			rehash(table.length * 2);
+		}
+		return code;
+	}
+
+	private void rehash(int capacity) {
+		table = new int[capacity];
+		int mask = capacity - 1;
+		for (int code = 0; code < valueCount; code++) {
+			int slot = values[code].hashCode() & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = code + 1;
+		}
+	}
+
+	private static boolean equals(String value, char[] chars, int offset, int length) {
+		if (value.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (value.charAt(i) != chars[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void allocate(int capacity) {
+		id = new int[capacity];
+		logtime = new long[capacity];
+		hostip = new int[capacity];
+		software = new int[capacity];
+		processname = new int[capacity];
+		faulttype = new int[capacity];
+		severity = new int[capacity];
+		user = new int[capacity];
+		content = new String[capacity];
+		count = new int[capacity];
+	}
+
+	private void grow(int capacity) {
+		id = Arrays.copyOf(id, capacity);
+		logtime = Arrays.copyOf(logtime, capacity);
+		hostip = Arrays.copyOf(hostip, capacity);
+		software = Arrays.copyOf(software, capacity);
+		processname = Arrays.copyOf(processname, capacity);
+		faulttype = Arrays.copyOf(faulttype, capacity);
+		severity = Arrays.copyOf(severity, capacity);
+		user = Arrays.copyOf(user, capacity);
+		content = Arrays.copyOf(content, capacity);
+		count = Arrays.copyOf(count, capacity);
+	}
+}
@@ -0,0 +1,355 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.search.SearchHit;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Decodes the fluentd source of a hit straight into a LogCollect.
+ *
+ * The source bytes are read with a streaming parser, only log, @timestamp and
+ * kubernetes.host/pod_name/container_name are materialized and everything else is
+ * skipped, so no String copy of the source and no JSON tree is built per document.
+ * Not thread safe, every thread needs its own decoder.
+ */
+public class LogCollectDecoder {
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private static final DateTimeFormatter FALLBACK_PARSER = ISODateTimeFormat.dateTimeParser().withZoneUTC();
+
+	private static final int SECOND_LENGTH = "yyyy-MM-ddTHH:mm:ss".length();
+
+	// the documents of a page mostly share the second of their timestamp
+	private final char[] lastSecond = new char[SECOND_LENGTH];
+	private long lastSecondMillis = Long.MIN_VALUE;
+
+	/**
+	 * decode a page of hits, the decode time is recorded in the ExportMetrics
+	 * @param hits
+	 * @param out
+	 * @throws IOException
+	 */
+	public void decode(SearchHit[] hits, List<LogCollect> out) throws IOException {
+		long start = System.nanoTime();
+		for (SearchHit hit : hits) {
+			out.add(decode(hit));
+		}
+		ExportMetrics.global().recordDecode(System.nanoTime() - start, hits.length);
+	}
+
+	/**
+	 * decode a page of hits into the columns of a batch
+	 * @param hits
+	 * @param out
+	 * @throws IOException
+	 */
+	public void decode(SearchHit[] hits, LogCollectBatch out) throws IOException {
+		long start = System.nanoTime();
+		for (SearchHit hit : hits) {
+			BytesRef source = source(hit);
+			decode(source.bytes, source.offset, source.length, out);
+		}
+		ExportMetrics.global().recordDecode(System.nanoTime() - start, hits.length);
+	}
+
+	public LogCollect decode(SearchHit hit) throws IOException {
+		BytesRef source = source(hit);
+		return decode(source.bytes, source.offset, source.length);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the hit was fetched without its source, e.g. with FetchProfile.NONE
+	 */
+	private static BytesRef source(SearchHit hit) {
+		if (hit.getSourceRef() == null) {
+			throw new IllegalArgumentException("hit [" + hit.getId() + "] was fetched without _source");
+		}
+		return hit.getSourceRef().toBytesRef();
+	}
+
+	public LogCollect decode(byte[] source, int offset, int length) throws IOException {
+		LogCollect log = new LogCollect();
+		try (JsonParser parser = FACTORY.createParser(source, offset, length)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("source is not an object");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				// field names are canonicalized by the parser, no allocation per document
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				switch (field) {
+				case "log":
+					log.setContent(text(parser, value));
+					break;
+				case "@timestamp":
+					if (value == JsonToken.VALUE_STRING) {
+						log.setLogtime(new Date(timestamp(parser)));
+					} else {
+						parser.skipChildren();
+					}
+					break;
+				case "kubernetes":
+					if (value == JsonToken.START_OBJECT) {
+						decodeKubernetes(parser, log);
+					} else {
+						parser.skipChildren();
+					}
+					break;
+				default:
+					parser.skipChildren();
+				}
+			}
+		}
+		return log;
+	}
+
+	/**
+	 * decode one source as a new row of the batch, the kubernetes fields are looked up in
+	 * the dictionary of the batch straight from the parser buffer
+	 */
+	public void decode(byte[] source, int offset, int length, LogCollectBatch out) throws IOException {
+		int row = out.addRow();
+		try (JsonParser parser = FACTORY.createParser(source, offset, length)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("source is not an object");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				switch (field) {
+				case "log":
+					out.setContent(row, text(parser, value));
+					break;
+				case "@timestamp":
+					if (value == JsonToken.VALUE_STRING) {
+						out.setLogtime(row, timestamp(parser));
+					} else {
+						parser.skipChildren();
+					}
+					break;
+				case "kubernetes":
+					if (value == JsonToken.START_OBJECT) {
+						decodeKubernetes(parser, out, row);
+					} else {
+						parser.skipChildren();
+					}
+					break;
+				default:
+					parser.skipChildren();
+				}
+			}
+		}
+	}
+
+	private static void decodeKubernetes(JsonParser parser, LogCollect log) throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			switch (field) {
+			case "host":
+				log.setHostip(text(parser, value));
+				break;
+			case "pod_name":
+				log.setSoftware(text(parser, value));
+				break;
+			case "container_name":
+				log.setProcessname(text(parser, value));
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private static void decodeKubernetes(JsonParser parser, LogCollectBatch out, int row) throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			switch (field) {
+			case "host":
+				out.setHostipCode(row, code(parser, value, out));
+				break;
+			case "pod_name":
+				out.setSoftwareCode(row, code(parser, value, out));
+				break;
+			case "container_name":
+				out.setProcessnameCode(row, code(parser, value, out));
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+	}
+
+	/**
+	 * the dictionary code of the trimmed value, -1 for null
+	 */
+	private static int code(JsonParser parser, JsonToken value, LogCollectBatch out) throws IOException {
+		if (value == JsonToken.VALUE_NULL) {
+			return -1;
+		}
+		if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return -1;
+		}
+		char[] chars = parser.getTextCharacters();
+		int start = parser.getTextOffset();
+		int end = start + parser.getTextLength();
+		while (start < end && chars[start] <= ' ') {
+			start++;
+		}
+		while (end > start && chars[end - 1] <= ' ') {
+			end--;
+		}
+		return out.code(chars, start, end - start);
+	}
+
+	/**
+	 * the value trimmed like the LogCollect setters do, but without the intermediate String
+	 */
+	private static String text(JsonParser parser, JsonToken value) throws IOException {
+		if (value == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return null;
+		}
+		char[] chars = parser.getTextCharacters();
+		int start = parser.getTextOffset();
+		int end = start + parser.getTextLength();
+		while (start < end && chars[start] <= ' ') {
+			start++;
+		}
+		while (end > start && chars[end - 1] <= ' ') {
+			end--;
+		}
+		return new String(chars, start, end - start);
+	}
+
+	/**
+	 * parse an ISO 8601 timestamp like 2018-01-13T09:21:31.123456789+00:00 to epoch millis
+	 */
+	private long timestamp(JsonParser parser) throws IOException {
+		char[] chars = parser.getTextCharacters();
+		int offset = parser.getTextOffset();
+		int length = parser.getTextLength();
+		long millis = parseIso(chars, offset, length);
+		if (millis == Long.MIN_VALUE) {
+			try {
+				millis = FALLBACK_PARSER.parseMillis(new String(chars, offset, length));
+			} catch (IllegalArgumentException e) {
+				throw new IOException("invalid @timestamp " + new String(chars, offset, length), e);
+			}
+		}
+		return millis;
+	}
+
+	/**
+	 * @return the epoch millis or Long.MIN_VALUE if the text is not in the common fluentd format
+	 */
+	long parseIso(char[] chars, int offset, int length) {
+		if (length < SECOND_LENGTH || chars[offset + 4] != '-' || chars[offset + 7] != '-'
+				|| chars[offset + 10] != 'T' || chars[offset + 13] != ':' || chars[offset + 16] != ':') {
+			return Long.MIN_VALUE;
+		}
+
+		long second;
+		if (sameSecond(chars, offset)) {
+			second = lastSecondMillis;
+		} else {
+			int year = digits(chars, offset, 4);
+			int month = digits(chars, offset + 5, 2);
+			int day = digits(chars, offset + 8, 2);
+			int hour = digits(chars, offset + 11, 2);
+			int minute = digits(chars, offset + 14, 2);
+			int sec = digits(chars, offset + 17, 2);
+			if ((year | month | day | hour | minute | sec) < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+				return Long.MIN_VALUE;
+			}
+			second = ((daysFromCivil(year, month, day) * 24 + hour) * 60 + minute) * 60000L + sec * 1000L;
+			System.arraycopy(chars, offset, lastSecond, 0, SECOND_LENGTH);
+			lastSecondMillis = second;
+		}
+
+		int pos = offset + SECOND_LENGTH;
+		int end = offset + length;
+		int fraction = 0;
+		if (pos < end && chars[pos] == '.') {
+			pos++;
+			int scale = 100;
+			while (pos < end && chars[pos] >= '0' && chars[pos] <= '9') {
+				fraction += (chars[pos] - '0') * scale;
+				scale /= 10;
+				pos++;
+			}
+		}
+
+		long zone = 0;
+		if (pos < end) {
+			char sign = chars[pos];
+			if (sign == 'Z' && pos + 1 == end) {
+				zone = 0;
+			} else if ((sign == '+' || sign == '-') && (end - pos == 6 || end - pos == 5)) {
+				int hours = digits(chars, pos + 1, 2);
+				int minutes = digits(chars, end - 2, 2);
+				if (hours < 0 || minutes < 0 || (end - pos == 6 && chars[pos + 3] != ':')) {
+					return Long.MIN_VALUE;
+				}
+				zone = (hours * 60 + minutes) * 60000L;
+				if (sign == '-') {
+					zone = -zone;
+				}
+			} else {
+				return Long.MIN_VALUE;
+			}
+		}
+		return second + fraction - zone;
+	}
+
+	private boolean sameSecond(char[] chars, int offset) {
+		if (lastSecondMillis == Long.MIN_VALUE) {
+			return false;
+		}
+		for (int i = SECOND_LENGTH - 1; i >= 0; i--) {
+			if (chars[offset + i] != lastSecond[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int digits(char[] chars, int offset, int count) {
+		int value = 0;
+		for (int i = offset; i < offset + count; i++) {
+			char c = chars[i];
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * days since 1970-01-01 of a proleptic gregorian date
+	 */
+	private static long daysFromCivil(int year, int month, int day) {
+		year -= month <= 2 ? 1 : 0;
+		long era = (year >= 0 ? year : year - 399) / 400;
+		long yearOfEra = year - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+}
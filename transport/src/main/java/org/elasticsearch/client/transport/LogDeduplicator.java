@@ -0,0 +1,207 @@
+package org.elasticsearch.client.transport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Collapses repeated log lines, e.g. of a crash looping pod, into one record with a count.
+ *
+ * Records are fingerprinted on their normalized content (digit runs and whitespace runs
+ * collapsed, so ids and times don't matter), pod_name and container_name. The first record
+ * of a fingerprint is held for the window and shipped with the number of copies seen when
+ * the window expires. Fingerprints live in a fixed size open addressing table of primitive
+ * keys; when it is full the oldest entry is shipped early, so memory stays bounded.
+ */
+public class LogDeduplicator implements LogStage {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final int maxEntries;
+	private final long windowMillis;
+	private final LongSupplier clock;
+
+	// hash table, key 0 marks a free slot
+	private final int mask;
+	private final long[] keys;
+	private final long[] firstSeen;
+	private final int[] counts;
+	private final LogCollect[] records;
+
+	// keys in insertion order, which is the order they expire in
+	private final long[] order;
+	private int head;
+	private int size;
+
+	/**
+	 * @param maxEntries number of distinct lines held at most
+	 * @param window time a line is held to count its copies
+	 */
+	public LogDeduplicator(int maxEntries, TimeValue window) {
+		this(maxEntries, window, System::currentTimeMillis);
+	}
+
+	LogDeduplicator(int maxEntries, TimeValue window, LongSupplier clock) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries must be at least 1 but was " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+		this.windowMillis = window.millis();
+		this.clock = clock;
+
+		int capacity = Integer.highestOneBit(maxEntries * 2 - 1) << 1;
+		this.mask = capacity - 1;
+		this.keys = new long[capacity];
+		this.firstSeen = new long[capacity];
+		this.counts = new int[capacity];
+		this.records = new LogCollect[capacity];
+		this.order = new long[maxEntries];
+	}
+
+	@Override
+	public synchronized List<LogCollect> process(List<LogCollect> batch) {
+		List<LogCollect> out = new ArrayList<>();
+		long now = clock.getAsLong();
+		expire(now, out);
+		for (LogCollect record : batch) {
+			long key = fingerprint(record);
+			int slot = find(key);
+			if (keys[slot] == key) {
+				counts[slot]++;
+				continue;
+			}
+			if (size == maxEntries) {
+				emitOldest(out);
+				slot = find(key);
+			}
+			keys[slot] = key;
+			firstSeen[slot] = now;
+			counts[slot] = 1;
+			records[slot] = record;
+			order[(head + size) % maxEntries] = key;
+			size++;
+		}
+		return out;
+	}
+
+	/**
+	 * ship all held records
+	 */
+	@Override
+	public synchronized List<LogCollect> flush() {
+		if (size == 0) {
+			return Collections.emptyList();
+		}
+		List<LogCollect> out = new ArrayList<>(size);
+		while (size > 0) {
+			emitOldest(out);
+		}
+		return out;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	private void expire(long now, List<LogCollect> out) {
+		while (size > 0 && now - firstSeen[find(order[head])] >= windowMillis) {
+			emitOldest(out);
+		}
+	}
+
+	private void emitOldest(List<LogCollect> out) {
+		long key = order[head];
+		head = (head + 1) % maxEntries;
+		size--;
+
+		int slot = find(key);
+		LogCollect record = records[slot];
+		if (counts[slot] > 1) {
+			record.setCount(counts[slot]);
+		}
+		out.add(record);
+		remove(slot);
+	}
+
+	/**
+	 * @return the slot of the key or the free slot it belongs in
+	 */
+	private int find(long key) {
+		int slot = home(key);
+		while (keys[slot] != 0 && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private int home(long key) {
+		return (int) (key ^ (key >>> 32)) & mask;
+	}
+
+	/**
+	 * backward shift deletion, keeps the probe sequences of the following keys intact
+	 */
+	private void remove(int slot) {
+		int free = slot;
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			if (keys[next] == 0) {
+				break;
+			}
+			int home = home(keys[next]);
+			boolean stays = free <= next ? (free < home && home <= next) : (free < home || home <= next);
+			if (!stays) {
+				keys[free] = keys[next];
+				firstSeen[free] = firstSeen[next];
+				counts[free] = counts[next];
+				records[free] = records[next];
+				free = next;
+			}
+		}
+		keys[free] = 0;
+		records[free] = null;
+	}
+
+	/**
+	 * FNV-1a over content with digit and whitespace runs collapsed, pod_name and container_name
+	 */
+	static long fingerprint(LogCollect record) {
+		long hash = FNV_OFFSET;
+		String content = record.getContent();
+		if (content != null) {
+			char previous = 0;
+			for (int i = 0; i < content.length(); i++) {
+				char c = content.charAt(i);
+				if (c >= '0' && c <= '9') {
+					c = '0';
+				} else if (Character.isWhitespace(c)) {
+					c = ' ';
+				}
+				if ((c == '0' || c == ' ') && c == previous) {
+					continue;
+				}
+				previous = c;
+				hash = (hash ^ c) * FNV_PRIME;
+			}
+		}
+		hash = hash(hash, record.getSoftware());
+		hash = hash(hash, record.getProcessname());
+		// 0 marks a free slot
+		return hash == 0 ? 1 : hash;
+	}
+
+	private static long hash(long hash, String value) {
+		hash = (hash ^ 0x1f) * FNV_PRIME;
+		if (value != null) {
+			for (int i = 0; i < value.length(); i++) {
+				hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+			}
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,330 @@
+package org.elasticsearch.client.transport;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Bounds the records shipped per pod, so one pod in an error storm cannot crowd out the
+ * errors of all others at the backend.
+ *
+ * Every pod_name of every host has a token bucket refilled at the rate up to the burst; a
+ * record takes a token or, over the budget, is suppressed. With sampling every n-th record
+ * over the budget is still shipped. For a pod with suppressed records a summary record
+ * "N records suppressed" is shipped once per summary interval.
+ *
+ * The buckets are kept in ConcurrentHashMaps, host to pod to bucket, so a lookup allocates
+ * nothing and workers only contend when they hold records of the same pod. Buckets of pods
+ * that stopped logging are dropped on the sweep every summary interval; a worker that looked
+ * up a bucket before the sweep dropped it looks it up again.
+ */
+public class LogRateLimiter implements LogStage {
+
+	private final double tokensPerMilli;
+	private final double burst;
+	private final int sampleEvery;
+	private final long summaryMillis;
+	private final LongSupplier clock;
+
+	private final ConcurrentHashMap<String, ConcurrentHashMap<String, Bucket>> hosts = new ConcurrentHashMap<>();
+	private final AtomicLong nextSweep;
+	private final AtomicLong suppressed = new AtomicLong();
+
+	private static final class Bucket {
+		final String hostip;
+		final String software;
+		String processname;
+		double tokens;
+		long refilled;
+		long lastSeen;
+		long summarized;
+		long overBudget;
+		long suppressed;
+		volatile boolean removed;
+
+		Bucket(String hostip, String software, double tokens, long now) {
+			this.hostip = hostip;
+			this.software = software;
+			this.tokens = tokens;
+			this.refilled = now;
+			this.summarized = now;
+		}
+	}
+
+	private LogRateLimiter(Builder builder) {
+		this.tokensPerMilli = builder.ratePerSecond / 1000.0;
+		this.burst = builder.burst;
+		this.sampleEvery = builder.sampleEvery;
+		this.summaryMillis = builder.summaryInterval.millis();
+		this.clock = builder.clock;
+		this.nextSweep = new AtomicLong(clock.getAsLong() + summaryMillis);
+	}
+
+	/**
+	 * @param ratePerSecond records per second each pod may ship
+	 * @param burst records a pod may ship at once after a quiet time
+	 * @return
+	 */
+	public static Builder builder(double ratePerSecond, int burst) {
+		return new Builder(ratePerSecond, burst);
+	}
+
+	@Override
+	public List<LogCollect> process(List<LogCollect> records) {
+		long now = clock.getAsLong();
+		List<LogCollect> out = new ArrayList<>(records.size());
+		for (LogCollect record : records) {
+			Bucket bucket;
+			Boolean keep;
+			do {
+				bucket = bucket(record.getHostip(), record.getSoftware(), now);
+				keep = acquire(bucket, record.getProcessname(), now);
+			} while (keep == null);
+			if (keep) {
+				out.add(record);
+			}
+			summary(bucket, now, false, out);
+		}
+		sweep(now, out);
+		return out;
+	}
+
+	/**
+	 * drop the suppressed records of a batch in place and append the summaries
+	 * @param batch
+	 */
+	public void process(LogCollectBatch batch) {
+		long now = clock.getAsLong();
+		List<LogCollect> summaries = new ArrayList<>(0);
+		batch.retain(row -> {
+			Bucket bucket;
+			Boolean keep;
+			do {
+				bucket = bucket(batch.getHostip(row), batch.getSoftware(row), now);
+				keep = acquire(bucket, batch.getProcessname(row), now);
+			} while (keep == null);
+			summary(bucket, now, false, summaries);
+			return keep;
+		});
+		sweep(now, summaries);
+		batch.addAll(summaries);
+	}
+
+	/**
+	 * @return the summaries of all pods with suppressed records
+	 */
+	@Override
+	public List<LogCollect> flush() {
+		List<LogCollect> out = new ArrayList<>();
+		long now = clock.getAsLong();
+		for (Map<String, Bucket> pods : hosts.values()) {
+			for (Bucket bucket : pods.values()) {
+				summary(bucket, now, true, out);
+			}
+		}
+		nextSweep.set(now + summaryMillis);
+		return out;
+	}
+
+	/**
+	 * @param sink
+	 * @return a sink which limits the records before it ships them to the given sink
+	 */
+	public LogSink limit(LogSink sink) {
+		return new LogSink() {
+			@Override
+			public void ship(List<LogCollect> records) throws Exception {
+				List<LogCollect> limited = process(records);
+				if (!limited.isEmpty()) {
+					sink.ship(limited);
+				}
+			}
+
+			@Override
+			public void ship(LogCollectBatch batch) throws Exception {
+				process(batch);
+				if (!batch.isEmpty()) {
+					sink.ship(batch);
+				}
+			}
+
+			@Override
+			public void flush() throws Exception {
+				List<LogCollect> summaries = LogRateLimiter.this.flush();
+				if (!summaries.isEmpty()) {
+					sink.ship(summaries);
+				}
+				sink.flush();
+			}
+		};
+	}
+
+	/**
+	 * @return the number of records suppressed since the start
+	 */
+	public long getSuppressed() {
+		return suppressed.get();
+	}
+
+	/**
+	 * @return the number of pods with a bucket
+	 */
+	public int size() {
+		int size = 0;
+		for (Map<String, Bucket> pods : hosts.values()) {
+			size += pods.size();
+		}
+		return size;
+	}
+
+	private Bucket bucket(String hostip, String software, long now) {
+		String host = hostip == null ? "" : hostip;
+		String pod = software == null ? "" : software;
+		ConcurrentHashMap<String, Bucket> pods = hosts.get(host);
+		if (pods == null) {
+			pods = hosts.computeIfAbsent(host, h -> new ConcurrentHashMap<>());
+		}
+		while (true) {
+			Bucket bucket = pods.get(pod);
+			if (bucket == null) {
+				bucket = pods.computeIfAbsent(pod, p -> new Bucket(hostip, software, burst, now));
+			}
+			if (!bucket.removed) {
+				return bucket;
+			}
+			// the sweep is about to drop it from the map
+			pods.remove(pod, bucket);
+		}
+	}
+
+	/**
+	 * @return whether the record is shipped, null if the sweep removed the bucket since the lookup
+	 */
+	private Boolean acquire(Bucket bucket, String processname, long now) {
+		synchronized (bucket) {
+			if (bucket.removed) {
+				return null;
+			}
+			bucket.lastSeen = now;
+			if (now > bucket.refilled) {
+				bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.refilled) * tokensPerMilli);
+				bucket.refilled = now;
+			}
+			if (bucket.tokens >= 1) {
+				bucket.tokens--;
+				return true;
+			}
+			bucket.processname = processname;
+			if (sampleEvery > 0 && bucket.overBudget++ % sampleEvery == 0) {
+				return true;
+			}
+			bucket.suppressed++;
+			suppressed.incrementAndGet();
+			return false;
+		}
+	}
+
+	/**
+	 * add the summary of the bucket once the interval since the last one passed
+	 * @param force add it before the interval passed
+	 */
+	private void summary(Bucket bucket, long now, boolean force, List<LogCollect> out) {
+		long count;
+		long since;
+		synchronized (bucket) {
+			if (bucket.suppressed == 0 || (!force && now - bucket.summarized < summaryMillis)) {
+				return;
+			}
+			count = bucket.suppressed;
+			since = bucket.summarized;
+			bucket.suppressed = 0;
+			bucket.summarized = now;
+		}
+		LogCollect summary = new LogCollect();
+		summary.setHostip(bucket.hostip);
+		summary.setSoftware(bucket.software);
+		summary.setProcessname(bucket.processname);
+		summary.setLogtime(new Date(now));
+		summary.setFaulttype("suppressed");
+		summary.setSeverity("warning");
+		summary.setContent(count + " records suppressed in the last " + TimeValue.timeValueMillis(now - since));
+		summary.setCount((int) Math.min(Integer.MAX_VALUE, count));
+		out.add(summary);
+	}
+
+	/**
+	 * once per summary interval, add the summaries of pods without new records and drop the
+	 * buckets of pods that stopped logging, by one worker only
+	 */
+	private void sweep(long now, List<LogCollect> out) {
+		long next = nextSweep.get();
+		if (now < next || !nextSweep.compareAndSet(next, now + summaryMillis)) {
+			return;
+		}
+		// a full bucket without suppressed records is the same as no bucket
+		long idleMillis = Math.max(summaryMillis, (long) Math.ceil(burst / tokensPerMilli));
+		for (Map<String, Bucket> pods : hosts.values()) {
+			for (Iterator<Bucket> buckets = pods.values().iterator(); buckets.hasNext();) {
+				Bucket bucket = buckets.next();
+				summary(bucket, now, false, out);
+				synchronized (bucket) {
+					if (bucket.suppressed == 0 && now - bucket.lastSeen >= idleMillis) {
+						bucket.removed = true;
+						buckets.remove();
+					}
+				}
+			}
+		}
+	}
+
+	public static class Builder {
+		private final double ratePerSecond;
+		private final int burst;
+		private int sampleEvery;
+		private TimeValue summaryInterval = TimeValue.timeValueSeconds(10);
+		private LongSupplier clock = System::currentTimeMillis;
+
+		private Builder(double ratePerSecond, int burst) {
+			if (ratePerSecond <= 0 || burst < 1) {
+				throw new IllegalArgumentException("invalid rate [" + ratePerSecond + "] or burst [" + burst + "]");
+			}
+			this.ratePerSecond = ratePerSecond;
+			this.burst = burst;
+		}
+
+		/**
+		 * ship every n-th record over the budget anyway, 0 to suppress all of them
+		 */
+		public Builder setSampling(int sampleEvery) {
+			if (sampleEvery < 0) {
+				throw new IllegalArgumentException("sampleEvery must not be negative but was " + sampleEvery);
+			}
+			this.sampleEvery = sampleEvery;
+			return this;
+		}
+
+		/**
+		 * time between two summaries of a pod
+		 */
+		public Builder setSummaryInterval(TimeValue summaryInterval) {
+			this.summaryInterval = summaryInterval;
+			return this;
+		}
+
+		Builder setClock(LongSupplier clock) {
+			this.clock = clock;
+			return this;
+		}
+
+		public LogRateLimiter build() {
+			return new LogRateLimiter(this);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package org.elasticsearch.client.transport;
+
+import java.util.List;
+
+/**
+ * Destination of exported records, e.g. the HttpSink posting to insertErrorLog.action.
+ */
+public interface LogSink {
+
+	void ship(List<LogCollect> records) throws Exception;
+
+	/**
+	 * ship the records of a batch, the batch may be cleared and reused once this returns
+	 */
+	default void ship(LogCollectBatch batch) throws Exception {
+		ship(batch.toList());
+	}
+
+	/**
+	 * ship everything buffered, called when an export is done
+	 */
+	default void flush() throws Exception {
+	}
+}
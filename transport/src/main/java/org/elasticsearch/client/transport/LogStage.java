@@ -0,0 +1,26 @@
+package org.elasticsearch.client.transport;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A processing step between decoding and shipping, e.g. setting the fault type or dropping
+ * records. Stages of an ExportPipeline are called from several workers at the same time.
+ */
+@FunctionalInterface
+public interface LogStage {
+
+	/**
+	 * @param records
+	 * @return the records to pass on, may be the same list
+	 */
+	List<LogCollect> process(List<LogCollect> records);
+
+	/**
+	 * called once at the end of an export
+	 * @return the records still held back by this stage
+	 */
+	default List<LogCollect> flush() {
+		return Collections.emptyList();
+	}
+}
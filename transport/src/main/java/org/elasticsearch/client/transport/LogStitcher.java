@@ -0,0 +1,243 @@
+package org.elasticsearch.client.transport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Joins the lines of a multiline event, e.g. a Java stack trace, which fluentd ships as one
+ * document per line, into one record.
+ *
+ * Lines are grouped by hostip, pod_name (software) and container_name (processname) and
+ * must arrive by logtime, oldest first, as CheckpointTailer fetches them. A line that is not
+ * a continuation ("at a.B.c(B.java:1)", "... 12 more", "Caused by: ...", "Suppressed: ...")
+ * starts a new event; continuation lines are appended to the open event of their container,
+ * or start one when a trace arrives without its first line.
+ *
+ * The lines of a trace are mostly logged in the same millisecond, and the tailer breaks ties
+ * of @timestamp by _uid, which is random. So the lines of a batch are ordered by logtime with
+ * the first lines before the continuations of the same millisecond, and a first line that
+ * comes after continuations of its millisecond, in a later batch, is put in front of them.
+ * The frames of one millisecond keep the order they arrived in, the source has nothing finer.
+ *
+ * An event is shipped when the next event of its container starts, when it holds maxLines
+ * lines, when the newest logtime seen is a window past its first line, when no line came in
+ * for it for a window, or when more than maxOpen containers have an open event, the oldest
+ * first. So memory stays bounded however many pods log.
+ */
+public class LogStitcher implements LogStage {
+
+	private final int maxOpen;
+	private final int maxLines;
+	private final long windowMillis;
+	private final LongSupplier clock;
+
+	// by logtime, the first lines before the continuations of the same millisecond
+	private static final Comparator<LogCollect> LOGGED_ORDER = Comparator.comparingLong(LogStitcher::logtime)
+			.thenComparing(record -> isContinuation(record.getContent()));
+
+	// open events by container, in the order they were started
+	private final LinkedHashMap<String, Event> open = new LinkedHashMap<>();
+	// the newest logtime processed
+	private long watermark = Long.MIN_VALUE;
+
+	private static class Event {
+		LogCollect first;
+		// logtime of the first line
+		final long started;
+		// clock time the last line came in
+		long arrived;
+		// created with the first continuation line
+		StringBuilder content;
+		int lines = 1;
+
+		Event(LogCollect first, long started, long arrived) {
+			this.first = first;
+			this.started = started;
+			this.arrived = arrived;
+		}
+
+		boolean isOrphan() {
+			return isContinuation(first.getContent());
+		}
+
+		void append(String line) {
+			if (content == null) {
+				content = text(first.getContent());
+			}
+			content.append('\n');
+			appendLine(content, line);
+			lines++;
+		}
+
+		/**
+		 * put the first line of the trace in front of the continuations that came before it
+		 */
+		void prepend(LogCollect header) {
+			StringBuilder joined = text(header.getContent());
+			joined.append('\n');
+			if (isFrame(first.getContent())) {
+				joined.append('\t');
+			}
+			joined.append(content == null ? first.getContent() : content);
+			content = joined;
+			first = header;
+			lines++;
+		}
+	}
+
+	/**
+	 * @param maxOpen containers with an open event at most
+	 * @param maxLines lines of one event at most, further lines start a new event
+	 * @param window logtime from the first to the last line of an event at most, and the
+	 *        time an event is held for further lines at most
+	 */
+	public LogStitcher(int maxOpen, int maxLines, TimeValue window) {
+		this(maxOpen, maxLines, window, System::currentTimeMillis);
+	}
+
+	LogStitcher(int maxOpen, int maxLines, TimeValue window, LongSupplier clock) {
+		if (maxOpen < 1 || maxLines < 1) {
+			throw new IllegalArgumentException("maxOpen and maxLines must be at least 1 but were " + maxOpen + ", " + maxLines);
+		}
+		this.maxOpen = maxOpen;
+		this.maxLines = maxLines;
+		this.windowMillis = window.millis();
+		this.clock = clock;
+	}
+
+	/**
+	 * @param batch lines, each container's oldest first; an empty batch only ships the
+	 *        events whose window expired
+	 * @return the events completed by the batch
+	 */
+	@Override
+	public synchronized List<LogCollect> process(List<LogCollect> batch) {
+		List<LogCollect> out = new ArrayList<>();
+		long now = clock.getAsLong();
+		List<LogCollect> lines = new ArrayList<>(batch);
+		lines.sort(LOGGED_ORDER);
+		for (LogCollect record : lines) {
+			long logtime = logtime(record);
+			watermark = Math.max(watermark, logtime);
+			String key = key(record);
+			Event event = open.get(key);
+			boolean continuation = isContinuation(record.getContent());
+			if (event != null && event.lines < maxLines) {
+				if (continuation && logtime - event.started < windowMillis) {
+					event.append(record.getContent());
+					event.arrived = now;
+					continue;
+				}
+				if (!continuation && record.getContent() != null && event.isOrphan() && logtime == event.started) {
+					event.prepend(record);
+					event.arrived = now;
+					continue;
+				}
+			}
+			if (event != null) {
+				open.remove(key);
+				out.add(complete(event));
+			}
+			open.put(key, new Event(record, logtime, now));
+			if (open.size() > maxOpen) {
+				Iterator<Event> oldest = open.values().iterator();
+				out.add(complete(oldest.next()));
+				oldest.remove();
+			}
+		}
+		expire(now, out);
+		return out;
+	}
+
+	/**
+	 * ship all open events
+	 */
+	@Override
+	public synchronized List<LogCollect> flush() {
+		if (open.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<LogCollect> out = new ArrayList<>(open.size());
+		for (Event event : open.values()) {
+			out.add(complete(event));
+		}
+		open.clear();
+		return out;
+	}
+
+	/**
+	 * @return the number of containers with an open event
+	 */
+	public synchronized int size() {
+		return open.size();
+	}
+
+	/**
+	 * @return the logtime of the first line of the oldest open event, Long.MAX_VALUE if none
+	 *         is open; a tailer must not checkpoint past it, or a restart loses the event
+	 */
+	public synchronized long oldestOpen() {
+		long oldest = Long.MAX_VALUE;
+		for (Event event : open.values()) {
+			oldest = Math.min(oldest, event.started);
+		}
+		return oldest;
+	}
+
+	/**
+	 * ship the events a window older than the newest line, their further lines would have
+	 * been fetched already, and the events no line came in for during a window
+	 */
+	private void expire(long now, List<LogCollect> out) {
+		Iterator<Event> events = open.values().iterator();
+		while (events.hasNext()) {
+			Event event = events.next();
+			if (watermark - event.started >= windowMillis || now - event.arrived >= windowMillis) {
+				out.add(complete(event));
+				events.remove();
+			}
+		}
+	}
+
+	private static LogCollect complete(Event event) {
+		if (event.content != null) {
+			event.first.setContent(event.content.toString());
+		}
+		return event.first;
+	}
+
+	private static StringBuilder text(String line) {
+		return new StringBuilder(line == null ? "" : line);
+	}
+
+	private static void appendLine(StringBuilder content, String line) {
+		if (isFrame(line)) {
+			// the tab was trimmed off with the rest of the whitespace
+			content.append('\t');
+		}
+		content.append(line);
+	}
+
+	private static long logtime(LogCollect record) {
+		return record.getLogtime() == null ? 0 : record.getLogtime().getTime();
+	}
+
+	private static String key(LogCollect record) {
+		return record.getHostip() + '\u0000' + record.getSoftware() + '\u0000' + record.getProcessname();
+	}
+
+	static boolean isContinuation(String line) {
+		return line != null && (isFrame(line) || line.startsWith("Caused by: ") || line.startsWith("Suppressed: "));
+	}
+
+	private static boolean isFrame(String line) {
+		return (line.startsWith("at ") && line.indexOf('(') > 0) || (line.startsWith("... ") && line.endsWith(" more"));
+	}
+}
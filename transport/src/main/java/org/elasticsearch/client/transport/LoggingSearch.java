@@ -1,157 +1,455 @@
-package org.elasticsearch.client.transport;
-
-import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
-import static org.elasticsearch.index.query.QueryBuilders.termQuery;
-import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
-
-import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.util.ArrayList;
-
-import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.transport.InetSocketTransportAddress;
-import org.elasticsearch.common.unit.TimeValue;
-import org.elasticsearch.index.query.QueryBuilder;
-import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.sort.SortOrder;
-import org.elasticsearch.transport.client.PreBuiltTransportClient;
-import org.joda.time.DateTime;
-
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
-
-public class LoggingSearch {
-	
-	
-	/**
-	 * term query
-	 * @param client
-	 * @throws Exception 
-	 */
-public static void createTermsSearchResponse(TransportClient client) throws Exception  {
-		
-		QueryBuilder query = termsQuery("log",    
-		    "error", "exception", "warning");   
-		
-//		DateTime endDate = new DateTime(System.currentTimeMillis() + 8 * 60 * 60 * 1000);
-		DateTime endDate = new DateTime(System.currentTimeMillis());
-		DateTime startDate = new DateTime(endDate.getMillis() - 60 *60 * 60 * 1000);
-		
-		System.out.println(System.currentTimeMillis());
-		System.out.println(startDate.getMillis());
-		System.out.println(endDate.getMillis());
-		
-		SearchResponse response = client.prepareSearch("logstash-*")
-		        .setTypes("fluentd")
-		        .addSort("@timestamp", SortOrder.DESC)
-		        .setScroll(new TimeValue(60000))
-		        .setQuery(query)                 // Query
-		        .setPostFilter(QueryBuilders.rangeQuery("@timestamp").from(startDate).to(endDate))     // Filter: accord to the time sort
-		        .setSize(100).setExplain(true)
-		        .get();
-		do {
-			if(response.getHits().getHits().length == 0) {
-				System.out.println("empty result");
-				System.exit(0);
-			}
-			
-			ArrayList<LogCollect> users = new ArrayList<>();
-			for(SearchHit hit : response.getHits().getHits()) {
-//				String hitJson = hit.getSourceAsString();
-//				System.out.println(hitJson);
-//				System.out.println(hit.getId() + " " + hit.getIndex() + " " +hit.getScore() );
-				JSONObject jsonSource = JSON.parseObject(hit.getSourceAsString());
-				JSONObject jsonKubernetes = jsonSource.getJSONObject("kubernetes");
-				System.out.println(jsonSource.get("log"));
-				System.out.println(jsonSource.get("@timestamp") 
-						+ " " + jsonKubernetes.get("host") + " " + jsonKubernetes.get("pod_name")
-						+ " " + jsonKubernetes.get("container_name"));
-
-				LogCollect user = new LogCollect();
-				user.setContent(jsonSource.getString("log"));
-				user.setHostip(jsonKubernetes.getString("host"));
-				user.setLogtime(jsonSource.getDate("@timestamp"));
-				user.setSoftware(jsonKubernetes.getString("pod_name"));
-				user.setProcessname(jsonKubernetes.getString("container_name"));
-				user.setUser("admin");
-				user.setFaulttype("error");
-				users.add(user);
-			}
-			
-			/**
-			 * post data to backend
-			 */
-			String postData = JSON.toJSONString(users);
-			System.out.println(postData);
-			HttpUtils.doPost("http://10.13.28.133:8080/test/asset/module/log/insertErrorLog.action", postData);
-			
-			response = client.prepareSearchScroll(response.getScrollId())
-						.setScroll(new TimeValue(60000)).execute().actionGet();
-		}while(response.getHits().getHits().length != 0);
-	}
-	
-	
-	/**
-	 * The default query for combining multiple leaf or compound query clauses, as must, should, must_not, or filter clauses. 
-	 * The must and should clauses have their scores combined — the more matching clauses, the better 
-	 * — while the must_not and filter clauses are executed in filter context.
-	 * @param client
-	 */
-	public static void createBoolQuery(TransportClient client) {
-		
-		QueryBuilder qb = boolQuery()
-			    //.must(termQuery("kubernetes.host", "lab3"))
-			    .must(termQuery("kubernetes.labels.name", "iotdb-master"))
-			    ;
-		
-		SearchResponse response = client.prepareSearch("logstash-*")
-		        .setTypes("fluentd")
-		        .addSort("@timestamp", SortOrder.DESC)
-		        .setScroll(new TimeValue(60000))
-		        .setQuery(qb)                 // Query
-		        .setSize(100).setExplain(true)
-		        .get();
-		
-		do {
-			for(SearchHit hit : response.getHits().getHits()) {
-				System.out.println(hit.getSourceAsString());
-			}
-			
-			response = client.prepareSearchScroll(response.getScrollId())
-						.setScroll(new TimeValue(60000))
-						.execute()
-						.actionGet();
-		}while(response.getHits().getHits().length != 0);
-	}
-	
-	public static void main(String[] args) {
-		/**
-		 * Add transport addresses and do something with the client... Settings
-		 * settings = Settings.builder() .put("cluster.name",
-		 * "myClusterName").build(); TransportClient client = new
-		 * PreBuiltTransportClient(settings);
-		 */
-		Settings settings = Settings.builder()
-				.put("cluster.name", "elasticsearch")
-				.put("client.transport.sniff", true)
-				.build();
-		TransportClient client = new PreBuiltTransportClient(settings);
-
-		try {
-			client.addTransportAddress(
-					new InetSocketTransportAddress(InetAddress.getByName("localhost"), 9300));
-			
-			createTermsSearchResponse(client);
-		} catch (UnknownHostException e) {
-			e.printStackTrace();
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace(); 
-		} finally {
-			client.close();
-		}
-	}
-
-}
+package org.elasticsearch.client.transport;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.prefixQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.transport.client.PreBuiltTransportClient;
+import org.joda.time.DateTime;
+
+import com.alibaba.fastjson.JSON;
+
+public class LoggingSearch {
+	
+	static final String ERROR_LOG_URL = "http://10.13.28.133:8080/test/asset/module/log/insertErrorLog.action";
+	
+	// takes the ErrorCount rows of createErrorCountAggregation, not LogCollect records
+	static final String ERROR_COUNT_URL = "http://10.13.28.133:8080/test/asset/module/log/insertErrorCount.action";
+	
+	// a post blocks a ship for 12s at most, which bounds the keep alive of the backfill scrolls
+	private static final HttpSink SINK = HttpSink.builder(ERROR_LOG_URL)
+			.setStreaming(true)
+			.setConnectTimeout(TimeValue.timeValueSeconds(2))
+			.setReadTimeout(TimeValue.timeValueSeconds(10))
+			.build();
+	
+	private static final HttpSink COUNT_SINK = HttpSink.builder(ERROR_COUNT_URL).build();
+	
+	// 50 records/s per pod, bursts of 500, 1% of the records over it and a summary per minute
+	private static final LogRateLimiter LIMITER = LogRateLimiter.builder(50, 500)
+			.setSampling(100)
+			.setSummaryInterval(TimeValue.timeValueMinutes(1))
+			.build();
+	
+	private static final LogSink LIMITED_SINK = LIMITER.limit(SINK);
+	
+	// the first export starts at 100 hits per page, the cost of its pages sizes the next
+	// export up to 5000 hits, as many as come back within half of 1s
+	private static final AdaptivePaging BACKFILL = AdaptivePaging.builder()
+			.setPageSize(100, 5000)
+			.setTargetLatency(TimeValue.timeValueSeconds(1))
+			// a ship blocked by the backend must not expire the scroll: one post of its own, and
+			// behind the SpillingSink one replayed post before it
+			.setKeepAlive(TimeValue.timeValueMillis(2 * SINK.maxStall().millis()), TimeValue.timeValueMinutes(5))
+			.build();
+	
+	// one hour buckets, documents arrive up to a few minutes late
+	private static final QueryResultCache CACHE = new QueryResultCache(new ByteSizeValue(256, ByteSizeUnit.MB),
+			TimeValue.timeValueHours(1), TimeValue.timeValueMinutes(5));
+	
+	// the daily indices of every client, the index list is fetched again every 10 minutes;
+	// a resolver holds its client weakly, so the entry goes with the client
+	private static final Map<TransportClient, IndexResolver> INDICES = Collections.synchronizedMap(new WeakHashMap<>());
+	
+	private static final FaultClassifier CLASSIFIER = FaultClassifier.defaults();
+	
+	private static final ThreadLocal<LogCollectDecoder> DECODER = ThreadLocal.withInitial(LogCollectDecoder::new);
+	
+	// reused for every page a thread posts
+	private static final ThreadLocal<LogCollectBatch> BATCH = ThreadLocal.withInitial(LogCollectBatch::new);
+	
+	/**
+	 * term query
+	 * @param client
+	 * @throws Exception 
+	 */
+public static void createTermsSearchResponse(TransportClient client) throws Exception  {
+		
+//		DateTime endDate = new DateTime(System.currentTimeMillis() + 8 * 60 * 60 * 1000);
+		DateTime endDate = new DateTime(System.currentTimeMillis());
+		DateTime startDate = new DateTime(endDate.getMillis() - 60 *60 * 60 * 1000);
+		
+		System.out.println(System.currentTimeMillis());
+		System.out.println(startDate.getMillis());
+		System.out.println(endDate.getMillis());
+		
+		if(exportTermsSearch(client, LIMITED_SINK, startDate, endDate) == 0) {
+			System.out.println("empty result");
+		}
+	}
+	
+	/**
+	 * post every page of the term query to the sink
+	 * @param client
+	 * @param sink
+	 * @param startDate
+	 * @param endDate
+	 * @return the number of hits posted
+	 * @throws Exception
+	 */
+	static long exportTermsSearch(TransportClient client, LogSink sink, DateTime startDate, DateTime endDate) throws Exception {
+		SearchRequestBuilder search = termsSearch(client, startDate, endDate, true);
+		
+		// the next page is fetched while the current one is posted to the backend
+		long posted = 0;
+		try (PrefetchingScroll scroll = new PrefetchingScroll(client, search, BACKFILL, 1)) {
+			while(scroll.hasNext()) {
+				SearchHit[] hits = scroll.next().getHits().getHits();
+				postHits(hits, sink);
+				posted += hits.length;
+			}
+		}
+		return posted;
+	}
+	
+	/**
+	 * term query, split into slices which are scrolled in parallel
+	 * @param client
+	 * @param slices number of slices, e.g. the number of shards of the daily index
+	 * @param ordered keep the merged result ordered by @timestamp
+	 * @throws Exception 
+	 */
+	public static void createParallelTermsSearchResponse(TransportClient client, int slices, boolean ordered) throws Exception {
+		DateTime endDate = new DateTime(System.currentTimeMillis());
+		DateTime startDate = new DateTime(endDate.getMillis() - 60 *60 * 60 * 1000);
+		
+		ExecutorService pool = Executors.newFixedThreadPool(slices);
+		try (SlicedScroll scroll = new SlicedScroll(client, () -> termsSearch(client, startDate, endDate, ordered), 
+				slices, pool, new TimeValue(60000), ordered ? SortOrder.DESC : null)) {
+			while(scroll.hasNext()) {
+				postHits(scroll.next());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * term query, exported by a pipeline with separate fetch, decode and ship workers
+	 * @param client
+	 * @param decodeThreads
+	 * @param shipThreads
+	 * @throws Exception 
+	 */
+	public static void createPipelinedTermsSearchResponse(TransportClient client, int decodeThreads, int shipThreads) throws Exception {
+		DateTime endDate = new DateTime(System.currentTimeMillis());
+		DateTime startDate = new DateTime(endDate.getMillis() - 60 *60 * 60 * 1000);
+		
+		// batches the backend refuses are spilled to disk and replayed when it is back
+		try (SpillingSink spilling = new SpillingSink(SINK, new SpillQueue(Paths.get("spill"), 64 * 1024 * 1024), 
+					TimeValue.timeValueSeconds(5))) {
+			long shipped = exportPipelinedTermsSearch(client, LIMITER.limit(spilling), startDate, endDate, decodeThreads, shipThreads);
+			System.out.println("shipped " + shipped);
+		}
+	}
+	
+	/**
+	 * export the term query through a pipeline into the sink
+	 * @param client
+	 * @param sink
+	 * @param startDate
+	 * @param endDate
+	 * @param decodeThreads
+	 * @param shipThreads
+	 * @return the number of records shipped
+	 * @throws Exception
+	 */
+	static long exportPipelinedTermsSearch(TransportClient client, LogSink sink, DateTime startDate, DateTime endDate, 
+			int decodeThreads, int shipThreads) throws Exception {
+		// the workers ship in no particular order, so the scroll need not sort either;
+		// posts are batched independent of the page size, up to 5000 records while the backend keeps up
+		try (PrefetchingScroll scroll = new PrefetchingScroll(client, termsSearch(client, startDate, endDate, false), BACKFILL, 1);
+				LogBatcher batcher = LogBatcher.builder(sink)
+						.setBatchActions(100, 5000)
+						.setTargetLatency(TimeValue.timeValueSeconds(1))
+						.build()) {
+			return ExportPipeline.builder(scroll.hitPages(), batcher)
+					.addStage(LoggingSearch::markErrors)
+					// crash looping pods repeat the same line, ship it once per 10s with its count
+					.addStage(new LogDeduplicator(100000, TimeValue.timeValueSeconds(10)))
+					.setDecodeThreads(decodeThreads)
+					.setShipThreads(shipThreads)
+					.build()
+					.run();
+		}
+	}
+	
+	/**
+	 * term query, tailing: only errors newer than the checkpoint are posted on every poll
+	 * @param client
+	 * @param checkpointFile keeps the last posted @timestamp and _uid across restarts
+	 * @param pollMillis
+	 * @throws Exception 
+	 */
+	public static void tailTermsSearchResponse(TransportClient client, Path checkpointFile, long pollMillis) throws Exception {
+		QueryBuilder query = termsQuery("log",    
+		    "error", "exception", "warning");   
+		
+		// without a checkpoint the tailing starts at the current time
+		CheckpointTailer tailer = new CheckpointTailer(client, query, checkpointFile, System.currentTimeMillis(), 100);
+		tailer.setIndexResolver(indices(client));
+		tailer.setPaging(tailing());
+		tailer.run(LoggingSearch::postHits, pollMillis);
+	}
+	
+	/**
+	 * term query, tailing with the frames of the stack traces: the lines of a trace are
+	 * shipped as one record, frames and traces without an error are dropped
+	 * @param client
+	 * @param checkpointFile keeps the last fetched @timestamp and _uid across restarts
+	 * @param pollMillis
+	 * @throws Exception 
+	 */
+	public static void tailStitchedSearchResponse(TransportClient client, Path checkpointFile, long pollMillis) throws Exception {
+		QueryBuilder query = boolQuery()
+				.should(termsQuery("log", "error", "exception", "warning"))
+				// "\tat org.apache.iotdb.Foo.bar(Foo.java:12)" as logged, on the keyword subfield of the
+				// dynamic mapping, so lines like "started at 10:00" are not fetched; and "Caused by: ..."
+				.should(prefixQuery("log.keyword", "\tat "))
+				.should(QueryBuilders.matchPhraseQuery("log", "caused by"));
+		
+		// a trace spans up to 5s of logtime and is held up to 5s for its next lines, by 10000 containers at most
+		LogStitcher stitcher = new LogStitcher(10000, 500, TimeValue.timeValueSeconds(5));
+		CheckpointTailer tailer = new CheckpointTailer(client, query, checkpointFile, System.currentTimeMillis(), 100);
+		tailer.setIndexResolver(indices(client));
+		tailer.setPaging(tailing());
+		// the open traces are fetched again after a restart
+		tailer.setHeld(stitcher::oldestOpen);
+		while (!Thread.currentThread().isInterrupted()) {
+			tailer.poll(hits -> {
+				List<LogCollect> lines = new ArrayList<>(hits.length);
+				DECODER.get().decode(hits, lines);
+				postStitched(stitcher.process(lines));
+			});
+			// ship the traces whose window expired while no lines came in
+			postStitched(stitcher.process(Collections.emptyList()));
+			try {
+				Thread.sleep(pollMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		postStitched(stitcher.flush());
+	}
+	
+	private static void postStitched(List<LogCollect> events) throws Exception {
+		markErrors(events);
+		// lines only fetched for their frames match no error rule
+		events.removeIf(event -> "info".equals(event.getSeverity()));
+		if (!events.isEmpty()) {
+			LIMITED_SINK.ship(events);
+		}
+	}
+	
+	/**
+	 * term query over the same window as createTermsSearchResponse, the closed hours of the
+	 * window are replayed from the result cache when they were searched before
+	 * @param client
+	 * @throws Exception 
+	 */
+	public static void createCachedTermsSearchResponse(TransportClient client) throws Exception {
+		QueryBuilder query = termsQuery("log",    
+		    "error", "exception", "warning");   
+		DateTime endDate = new DateTime(System.currentTimeMillis());
+		DateTime startDate = new DateTime(endDate.getMillis() - 60 *60 * 60 * 1000);
+		
+		CACHE.search(client, indices(client), query, startDate.getMillis(), endDate.getMillis(), 100, LoggingSearch::postHits);
+		System.out.println("cache hits " + CACHE.getCacheHits() + ", misses " + CACHE.getCacheMisses()
+				+ ", " + CACHE.sizeInBytes() + " bytes");
+	}
+	
+	/**
+	 * term query, aggregated: only the number of errors per host, pod and interval is
+	 * computed by the cluster and posted, the hits themselves never leave it
+	 * @param client
+	 * @param sink backend endpoint taking the ErrorCount rows, e.g. the one of ERROR_COUNT_URL
+	 * @param interval
+	 * @param partitions
+	 * @throws Exception 
+	 */
+	public static void createErrorCountAggregation(TransportClient client, HttpSink sink, DateHistogramInterval interval, int partitions) throws Exception {
+		QueryBuilder query = termsQuery("log",    
+		    "error", "exception", "warning");   
+		DateTime endDate = new DateTime();
+		DateTime startDate = new DateTime(endDate.getMillis() - 60 *60 * 60 * 1000);
+		
+		ErrorCountAggregation aggregation = new ErrorCountAggregation(client, query, interval, partitions, 1000, 1000);
+		aggregation.setIndexResolver(indices(client));
+		List<ErrorCount> counts = aggregation.count(startDate, endDate);
+		if(counts.isEmpty()) {
+			System.out.println("empty result");
+			return;
+		}
+		sink.post(JSON.toJSONString(counts));
+	}
+	
+	/**
+	 * pages of a tail, 100 hits once it caught up and up to 2000 while it works off a backlog
+	 */
+	private static AdaptivePaging tailing() {
+		return AdaptivePaging.builder()
+				.setPageSize(100, 2000)
+				.setTargetLatency(TimeValue.timeValueMillis(500))
+				.build();
+	}
+	
+	static IndexResolver indices(TransportClient client) {
+		return INDICES.computeIfAbsent(client, c -> new IndexResolver(c, "logstash-", TimeValue.timeValueMinutes(10)));
+	}
+	
+	/**
+	 * @param ordered newest hits first, otherwise in _doc order
+	 */
+	private static SearchRequestBuilder termsSearch(TransportClient client, DateTime startDate, DateTime endDate, boolean ordered) {
+		QueryBuilder query = FetchProfile.filter(
+				termsQuery("log", "error", "exception", "warning"),
+				QueryBuilders.rangeQuery("@timestamp").from(startDate).to(endDate));
+		
+		SearchRequestBuilder search = indices(client).prepareSearch(client, startDate.getMillis(), endDate.getMillis())
+		        .setTypes("fluentd")
+		        .setQuery(query)
+		        .setSize(100);
+		if (ordered) {
+			return FetchProfile.LOG_COLLECT.apply(search.addSort("@timestamp", SortOrder.DESC));
+		}
+		return FetchProfile.LOG_COLLECT_UNORDERED.apply(search);
+	}
+	
+	/**
+	 * map the hits to LogCollect records and post them to backend
+	 * @param hits
+	 * @throws Exception
+	 */
+	static void postHits(SearchHit[] hits) throws Exception {
+		postHits(hits, LIMITED_SINK);
+	}
+	
+	static void postHits(SearchHit[] hits, LogSink sink) throws Exception {
+		LogCollectDecoder decoder = DECODER.get();
+		LogCollectBatch users = BATCH.get();
+		users.clear();
+		decoder.decode(hits, users);
+		markErrors(users);
+		
+		/**
+		 * post data to backend
+		 */
+		sink.ship(users);
+	}
+	
+	/**
+	 * every record found by the term query is an error of admin, its faulttype and severity
+	 * are those of the first rule of fault-rules.json the line matches
+	 * @param users
+	 * @return
+	 */
+	static List<LogCollect> markErrors(List<LogCollect> users) {
+		for(LogCollect user : users) {
+			user.setUser("admin");
+		}
+		return CLASSIFIER.process(users);
+	}
+	
+	
+	static void markErrors(LogCollectBatch users) {
+		for(int i = 0; i < users.size(); i++) {
+			users.setUser(i, "admin");
+		}
+		CLASSIFIER.process(users);
+	}
+	
+	/**
+	 * The default query for combining multiple leaf or compound query clauses, as must, should, must_not, or filter clauses. 
+	 * The must and should clauses have their scores combined — the more matching clauses, the better 
+	 * — while the must_not and filter clauses are executed in filter context.
+	 * @param client
+	 */
+	public static void createBoolQuery(TransportClient client) {
+		
+		QueryBuilder qb = boolQuery()
+			    //.filter(termQuery("kubernetes.host", "lab3"))
+			    .filter(termQuery("kubernetes.labels.name", "iotdb-master"))
+			    ;
+		
+		SearchResponse response = FetchProfile.LOG_COLLECT.apply(client.prepareSearch("logstash-*")
+		        .setTypes("fluentd")
+		        .addSort("@timestamp", SortOrder.DESC)
+		        .setScroll(new TimeValue(60000))
+		        .setQuery(qb)                 // Query
+		        .setSize(100))
+		        .get();
+		
+		do {
+			for(SearchHit hit : response.getHits().getHits()) {
+				System.out.println(hit.getSourceAsString());
+			}
+			
+			response = client.prepareSearchScroll(response.getScrollId())
+						.setScroll(new TimeValue(60000))
+						.execute()
+						.actionGet();
+		}while(response.getHits().getHits().length != 0);
+	}
+	
+	public static void main(String[] args) {
+		/**
+		 * Add transport addresses and do something with the client... Settings
+		 * settings = Settings.builder() .put("cluster.name",
+		 * "myClusterName").build(); TransportClient client = new
+		 * PreBuiltTransportClient(settings);
+		 */
+		Settings settings = Settings.builder()
+				.put("cluster.name", "elasticsearch")
+				.put("client.transport.sniff", true)
+				.build();
+		TransportClient client = new PreBuiltTransportClient(settings);
+		ExportMetrics.global().startReporting(new ExportMetrics.LogReporter(), TimeValue.timeValueSeconds(10));
+
+		try {
+			client.addTransportAddress(
+					new InetSocketTransportAddress(InetAddress.getByName("localhost"), 9300));
+			
+			createTermsSearchResponse(client);
+//			createParallelTermsSearchResponse(client, Runtime.getRuntime().availableProcessors(), true);
+//			createPipelinedTermsSearchResponse(client, 2, 4);
+//			tailTermsSearchResponse(client, Paths.get("logging-search.checkpoint"), 60000);
+//			tailStitchedSearchResponse(client, Paths.get("logging-search.checkpoint"), 60000);
+//			createCachedTermsSearchResponse(client);
+//			createErrorCountAggregation(client, COUNT_SINK, DateHistogramInterval.minutes(5), 4);
+		} catch (UnknownHostException e) {
+			e.printStackTrace();
+		} catch (Exception e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace(); 
+		} finally {
+			ExportMetrics.global().stopReporting();
+			client.close();
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+package org.elasticsearch.client.transport;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+
+/**
+ * Iterates over the pages of a scroll while the next pages are already being fetched.
+ * Up to <code>prefetch</code> pages are requested ahead of the caller through the async
+ * execute(ActionListener) API, so the round-trip to the cluster overlaps with the
+ * processing of the current page. The scroll context is cleared on close.
+ *
+ * With AdaptivePaging the keep alive of every scroll request follows the measured round-trip
+ * and processing times. A scroll keeps the page size of its first request, so the page size
+ * of the AdaptivePaging only sizes the first page and is tuned for the next search.
+ */
+public class PrefetchingScroll implements Iterator<SearchResponse>, Closeable {
+
+	private static final Object END = new Object();
+
+	private final TransportClient client;
+	private final TimeValue keepAlive;
+	private final AdaptivePaging paging;
+	private final int prefetch;
+	private final int pageSize;
+
+	// holds SearchResponse pages, the failure of the scroll or END
+	private final BlockingQueue<Object> pages = new LinkedBlockingQueue<>();
+
+	private final ActionListener<SearchResponse> listener = new ActionListener<SearchResponse>() {
+		@Override
+		public void onResponse(SearchResponse response) {
+			onPage(response);
+		}
+		@Override
+		public void onFailure(Exception e) {
+			onError(e);
+		}
+	};
+
+	private String scrollId;
+	private long requestStart;
+	private long handedOut;
+	private int buffered;
+	private boolean inFlight;
+	private boolean finished;
+	private boolean closed;
+	private Object current;
+
+	/**
+	 * @param client
+	 * @param search the initial search, its scroll keep alive is set here
+	 * @param keepAlive
+	 * @param prefetch number of pages fetched ahead of the caller, at least 1
+	 */
+	public PrefetchingScroll(TransportClient client, SearchRequestBuilder search, TimeValue keepAlive, int prefetch) {
+		this(client, search, keepAlive, null, prefetch);
+	}
+
+	/**
+	 * @param client
+	 * @param search the initial search, its size and scroll keep alive are set here
+	 * @param paging
+	 * @param prefetch number of pages fetched ahead of the caller, at least 1
+	 */
+	public PrefetchingScroll(TransportClient client, SearchRequestBuilder search, AdaptivePaging paging, int prefetch) {
+		this(client, search.setSize(paging.pageSize()), paging.keepAlive(), paging, prefetch);
+	}
+
+	private PrefetchingScroll(TransportClient client, SearchRequestBuilder search, TimeValue keepAlive,
+			AdaptivePaging paging, int prefetch) {
+		if (prefetch < 1) {
+			throw new IllegalArgumentException("prefetch must be at least 1 but was " + prefetch);
+		}
+		this.client = client;
+		this.keepAlive = keepAlive;
+		this.paging = paging;
+		this.prefetch = prefetch;
+		// 10 hits unless the search has a size
+		this.pageSize = search.request().source() == null || search.request().source().size() < 0
+				? 10 : search.request().source().size();
+
+		inFlight = true;
+		requestStart = System.nanoTime();
+		search.setScroll(keepAlive).execute(listener);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (current == null) {
+			if (handedOut != 0 && paging != null) {
+				paging.onProcessed(System.nanoTime() - handedOut);
+			}
+			handedOut = 0;
+			try {
+				current = pages.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw ExceptionsHelper.convertToRuntime(e);
+			}
+		}
+		if (current instanceof Exception) {
+			throw ExceptionsHelper.convertToRuntime((Exception) current);
+		}
+		return current != END;
+	}
+
+	@Override
+	public SearchResponse next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		SearchResponse response = (SearchResponse) current;
+		current = null;
+		handedOut = System.nanoTime();
+		synchronized (this) {
+			buffered--;
+			fetchNext();
+		}
+		return response;
+	}
+
+	/**
+	 * @return the hits of the pages, closing it closes this scroll
+	 */
+	public HitPages hitPages() {
+		return new HitPages();
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+		if (!inFlight) {
+			clearScroll();
+		}
+	}
+
+	private synchronized void onPage(SearchResponse response) {
+		inFlight = false;
+		scrollId = response.getScrollId();
+		SearchHit[] hits = response.getHits().getHits();
+		long roundTrip = System.nanoTime() - requestStart;
+		ExportMetrics.global().recordScroll(roundTrip / 1000, hits.length);
+		if (paging != null) {
+			paging.onPage(pageSize, hits.length, AdaptivePaging.bytes(hits), roundTrip);
+		}
+		if (closed) {
+			clearScroll();
+			return;
+		}
+		if (hits.length == 0) {
+			finished = true;
+			pages.add(END);
+			return;
+		}
+		buffered++;
+		pages.add(response);
+		fetchNext();
+	}
+
+	private synchronized void onError(Exception e) {
+		inFlight = false;
+		finished = true;
+		pages.add(e);
+		if (closed) {
+			clearScroll();
+		}
+	}
+
+	/**
+	 * request the next page unless one is already in flight or enough pages are buffered
+	 */
+	private void fetchNext() {
+		if (inFlight || finished || closed || buffered >= prefetch) {
+			return;
+		}
+		inFlight = true;
+		requestStart = System.nanoTime();
+		client.prepareSearchScroll(scrollId)
+				.setScroll(paging == null ? keepAlive : paging.keepAlive())
+				.execute(listener);
+	}
+
+	private void clearScroll() {
+		if (scrollId == null) {
+			return;
+		}
+		client.prepareClearScroll().addScrollId(scrollId).execute();
+		scrollId = null;
+	}
+
+	public class HitPages implements Iterator<SearchHit[]>, Closeable {
+		@Override
+		public boolean hasNext() {
+			return PrefetchingScroll.this.hasNext();
+		}
+
+		@Override
+		public SearchHit[] next() {
+			return PrefetchingScroll.this.next().getHits().getHits();
+		}
+
+		@Override
+		public void close() {
+			PrefetchingScroll.this.close();
+		}
+	}
+}
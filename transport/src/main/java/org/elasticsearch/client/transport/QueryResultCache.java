@@ -0,0 +1,267 @@
+package org.elasticsearch.client.transport;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.parser.Feature;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+
+/**
+ * Caches the hits of searches over closed @timestamp ranges.
+ *
+ * A range is split into buckets aligned to the bucket size. A bucket that ended more than
+ * <code>settle</code> ago no longer receives documents, its hits are cached under the
+ * canonical JSON of the query plus the bucket start, deflated, and replayed on the next
+ * search over it. The partial buckets at the edges of the range, and the still open tail,
+ * are always searched live. The cache is bounded by the compressed size of its entries and
+ * evicts the least recently used bucket first.
+ */
+public class QueryResultCache {
+
+	/**
+	 * searches the documents with from <= @timestamp < to
+	 */
+	@FunctionalInterface
+	interface RangeSearch {
+		void search(long from, long to, HitsHandler handler) throws Exception;
+	}
+
+	private static final int END = -1;
+
+	private final long maxBytes;
+	private final long bucketMillis;
+	private final long settleMillis;
+	private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+
+	/**
+	 * @param maxSize compressed size of all entries
+	 * @param bucket size of the cached time buckets
+	 * @param settle time after which late documents are no longer expected in a bucket
+	 */
+	public QueryResultCache(ByteSizeValue maxSize, TimeValue bucket, TimeValue settle) {
+		this.maxBytes = maxSize.getBytes();
+		this.bucketMillis = bucket.millis();
+		this.settleMillis = settle.millis();
+	}
+
+	/**
+	 * hand all documents of logstash-* with from <= @timestamp < to, sorted ascending on
+	 * @timestamp within each bucket, to the handler
+	 * @param client
+	 * @param indices resolves the daily indices of a range, null to search all of logstash-*
+	 * @param query
+	 * @param from
+	 * @param to
+	 * @param pageSize
+	 * @param handler
+	 * @throws Exception
+	 */
+	public void search(TransportClient client, IndexResolver indices, QueryBuilder query, long from, long to, int pageSize,
+			HitsHandler handler) throws Exception {
+		search(canonical(query), from, to, System.currentTimeMillis(), (start, end, pages) -> {
+			try (PrefetchingScroll scroll = new PrefetchingScroll(client, FetchProfile.LOG_COLLECT.apply(IndexResolver.prepareSearch(client, indices, start, end - 1)
+					.setTypes("fluentd")
+					.setQuery(boolQuery()
+							.filter(query)
+							.filter(QueryBuilders.rangeQuery("@timestamp").gte(start).lt(end)))
+					.addSort("@timestamp", SortOrder.ASC)
+					.setSize(pageSize)), TimeValue.timeValueMinutes(1), 1)) {
+				PrefetchingScroll.HitPages hitPages = scroll.hitPages();
+				while (hitPages.hasNext()) {
+					SearchHit[] hits = hitPages.next();
+					if (hits.length > 0) {
+						pages.handle(hits);
+					}
+				}
+			}
+		}, handler);
+	}
+
+	void search(String query, long from, long to, long now, RangeSearch live, HitsHandler handler) throws Exception {
+		long firstBucket = (from + bucketMillis - 1) / bucketMillis * bucketMillis;
+		long closedEnd = Math.min(to, now - settleMillis) / bucketMillis * bucketMillis;
+		if (firstBucket >= closedEnd) {
+			live.search(from, to, handler);
+			return;
+		}
+		if (from < firstBucket) {
+			live.search(from, firstBucket, handler);
+		}
+		for (long bucket = firstBucket; bucket < closedEnd; bucket += bucketMillis) {
+			searchBucket(query + '|' + bucketMillis + '|' + bucket, bucket, live, handler);
+		}
+		if (closedEnd < to) {
+			live.search(closedEnd, to, handler);
+		}
+	}
+
+	private void searchBucket(String key, long bucket, RangeSearch live, HitsHandler handler) throws Exception {
+		byte[] entry;
+		synchronized (this) {
+			entry = entries.get(key);
+		}
+		if (entry != null) {
+			cacheHits.increment();
+			replay(entry, handler);
+			return;
+		}
+		cacheMisses.increment();
+
+		BucketBuffer buffer = new BucketBuffer(maxBytes);
+		try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(buffer, new Deflater(Deflater.BEST_SPEED)))) {
+			live.search(bucket, bucket + bucketMillis, hits -> {
+				if (!buffer.isDropped()) {
+					write(out, hits);
+				}
+				handler.handle(hits);
+			});
+			out.writeInt(END);
+		}
+		if (!buffer.isDropped()) {
+			put(key, buffer.toByteArray());
+		}
+	}
+
+	private synchronized void put(String key, byte[] entry) {
+		if (entry.length > maxBytes) {
+			return;
+		}
+		byte[] previous = entries.put(key, entry);
+		bytes += entry.length - (previous == null ? 0 : previous.length);
+		Iterator<Map.Entry<String, byte[]>> eldest = entries.entrySet().iterator();
+		while (bytes > maxBytes) {
+			bytes -= eldest.next().getValue().length;
+			eldest.remove();
+		}
+	}
+
+	private static void write(DataOutputStream out, SearchHit[] hits) throws IOException {
+		out.writeInt(hits.length);
+		for (SearchHit hit : hits) {
+			BytesReference source = hit.getSourceRef();
+			out.writeUTF(hit.getId());
+			out.writeUTF(hit.getType());
+			out.writeInt(source.length());
+			source.writeTo(out);
+		}
+	}
+
+	/**
+	 * holds a compressed bucket until it gets larger than the whole cache, then drops it and
+	 * discards the rest, so a large bucket is streamed to the handler without being buffered
+	 */
+	private static class BucketBuffer extends OutputStream {
+		private final long limit;
+		private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		BucketBuffer(long limit) {
+			this.limit = limit;
+		}
+
+		boolean isDropped() {
+			return bytes == null;
+		}
+
+		byte[] toByteArray() {
+			return bytes.toByteArray();
+		}
+
+		@Override
+		public void write(int b) {
+			if (bytes != null) {
+				bytes.write(b);
+				dropIfFull();
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			if (bytes != null) {
+				bytes.write(b, off, len);
+				dropIfFull();
+			}
+		}
+
+		private void dropIfFull() {
+			if (bytes.size() > limit) {
+				bytes = null;
+			}
+		}
+	}
+
+	private static void replay(byte[] entry, HitsHandler handler) throws Exception {
+		try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(entry)))) {
+			int length;
+			while ((length = in.readInt()) != END) {
+				SearchHit[] hits = new SearchHit[length];
+				for (int i = 0; i < length; i++) {
+					String id = in.readUTF();
+					String type = in.readUTF();
+					byte[] source = new byte[in.readInt()];
+					in.readFully(source);
+					hits[i] = new SearchHit(i, id, new Text(type), Collections.emptyMap()).sourceRef(new BytesArray(source));
+				}
+				handler.handle(hits);
+			}
+		}
+	}
+
+	/**
+	 * @param query
+	 * @return the JSON of the query with the keys of every object sorted, so equal queries
+	 * give the same key however they were built
+	 */
+	static String canonical(QueryBuilder query) {
+		return JSON.toJSONString(JSON.parse(query.toString(), Feature.OrderedField), SerializerFeature.MapSortField);
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long sizeInBytes() {
+		return bytes;
+	}
+
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+}
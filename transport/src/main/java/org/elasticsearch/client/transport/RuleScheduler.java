@@ -0,0 +1,175 @@
+package org.elasticsearch.client.transport;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.search.MultiSearchRequestBuilder;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * Runs many AlertRules on one client and one timer.
+ *
+ * On every tick the rules that are due are combined into a single multi search, one
+ * search per rule over the @timestamp window since its last successful run, and the
+ * responses are handed to the handler rule by rule. A rule whose search or handler failed
+ * keeps its window and is due again on the next tick, as are all rules of a multi search
+ * that failed as a whole.
+ *
+ * The hits carry the log line as their only source field, @timestamp and the keyword
+ * subfields of the kubernetes host, pod_name and container_name come as docvalue fields,
+ * e.g. hit.field("kubernetes.host.keyword"), see FetchProfile.ALERT.
+ */
+public class RuleScheduler {
+
+	private static final Logger logger = LogManager.getLogger(RuleScheduler.class);
+
+	@FunctionalInterface
+	public interface Handler {
+		void handle(AlertRule rule, SearchResponse response) throws Exception;
+	}
+
+	private final TransportClient client;
+	private final List<AlertRule> rules;
+	private final Handler handler;
+	// per rule, same index as rules: start of the window and time of the next run
+	private final long[] windowStart;
+	private final long[] nextRun;
+	private ScheduledExecutorService timer;
+	private IndexResolver indices;
+
+	/**
+	 * @param client
+	 * @param rules
+	 * @param handler
+	 * @param start @timestamp the first window of every rule starts at
+	 */
+	public RuleScheduler(TransportClient client, List<AlertRule> rules, Handler handler, long start) {
+		this.client = client;
+		this.rules = rules;
+		this.handler = handler;
+		this.windowStart = new long[rules.size()];
+		this.nextRun = new long[rules.size()];
+		for (int i = 0; i < rules.size(); i++) {
+			windowStart[i] = start;
+			nextRun[i] = start;
+		}
+	}
+
+	/**
+	 * search only the daily indices of each window instead of logstash-*
+	 */
+	public void setIndexResolver(IndexResolver indices) {
+		this.indices = indices;
+	}
+
+	/**
+	 * @param tick how often to look for due rules, the finest interval a rule can have
+	 */
+	public synchronized void start(TimeValue tick) {
+		timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "rule-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.scheduleWithFixedDelay(() -> {
+			try {
+				tick(System.currentTimeMillis());
+			} catch (Exception e) {
+				logger.error("rule tick failed", e);
+			}
+		}, 0, tick.millis(), TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		if (timer != null) {
+			timer.shutdown();
+			timer = null;
+		}
+	}
+
+	/**
+	 * run all rules that are due at now with one multi search
+	 * @param now
+	 * @return the number of rules that ran
+	 */
+	public int tick(long now) {
+		List<Integer> due = due(now);
+		if (due.isEmpty()) {
+			return 0;
+		}
+
+		MultiSearchRequestBuilder multiSearch = client.prepareMultiSearch();
+		for (int i : due) {
+			AlertRule rule = rules.get(i);
+			multiSearch.add(FetchProfile.ALERT.apply(IndexResolver.prepareSearch(client, indices, windowStart[i], now)
+					.setTypes("fluentd")
+					.setQuery(boolQuery()
+							.filter(rule.toQuery())
+							.filter(QueryBuilders.rangeQuery("@timestamp").gte(windowStart[i]).lt(now)))
+					.addSort("@timestamp", SortOrder.DESC)
+					.setSize(rule.getSize())));
+		}
+		MultiSearchResponse response;
+		try {
+			response = multiSearch.get();
+		} catch (RuntimeException e) {
+			for (int i : due) {
+				retry(i, now);
+			}
+			throw e;
+		}
+
+		// the items come back in the order the searches were added
+		MultiSearchResponse.Item[] items = response.getResponses();
+		for (int n = 0; n < items.length; n++) {
+			int i = due.get(n);
+			AlertRule rule = rules.get(i);
+			if (items[n].isFailure()) {
+				logger.warn("rule [" + rule.getName() + "] failed: " + items[n].getFailureMessage());
+				retry(i, now);
+				continue;
+			}
+			try {
+				handler.handle(rule, items[n].getResponse());
+				windowStart[i] = now;
+			} catch (Exception e) {
+				logger.error("handling rule [" + rule.getName() + "] failed", e);
+				retry(i, now);
+			}
+		}
+		return due.size();
+	}
+
+	/**
+	 * @param now
+	 * @return the indices of the rules to run at now, their next run is moved forward
+	 */
+	synchronized List<Integer> due(long now) {
+		List<Integer> due = new ArrayList<>();
+		for (int i = 0; i < rules.size(); i++) {
+			if (nextRun[i] <= now) {
+				due.add(i);
+				nextRun[i] = now + rules.get(i).getInterval() * 1000L;
+			}
+		}
+		return due;
+	}
+
+	/**
+	 * make a rule that failed at now due again on the next tick
+	 */
+	synchronized void retry(int i, long now) {
+		nextRun[i] = now;
+	}
+}
@@ -0,0 +1,229 @@
+package org.elasticsearch.client.transport;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.slice.SliceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * Splits a scroll into N slices (the slice API of the search request) which are scrolled
+ * concurrently on a worker pool, and merges them into one stream of hit pages.
+ *
+ * Without an order the pages are returned as the slices deliver them. With an order every
+ * slice has to be sorted on the same field (e.g. @timestamp) and the pages are merged on
+ * the first sort value of the hits, so the stream keeps that order.
+ */
+public class SlicedScroll implements Iterator<SearchHit[]>, Closeable {
+
+	private static final Object END = new Object();
+
+	private static final int SLICE_QUEUE_CAPACITY = 4;
+
+	private final SortOrder order;
+	private final int pageSize;
+	private final List<Future<?>> tasks = new ArrayList<>();
+
+	// unordered: one queue shared by all slices, ordered: one queue per slice
+	private final List<BlockingQueue<Object>> queues = new ArrayList<>();
+	private final PriorityQueue<SliceCursor> heads;
+	private int running;
+	private boolean started;
+	private SearchHit[] current;
+
+	/**
+	 * @param client
+	 * @param search creates the search of each slice, called once per slice
+	 * @param slices number of slices, usually the number of shards or cores
+	 * @param pool the workers running the slices, needs one thread per slice to run them all at once
+	 * @param keepAlive
+	 * @param order the sort order of the first sort field to merge on, null for no order
+	 */
+	public SlicedScroll(TransportClient client, Supplier<SearchRequestBuilder> search, int slices,
+			ExecutorService pool, TimeValue keepAlive, SortOrder order) {
+		if (slices < 1) {
+			throw new IllegalArgumentException("slices must be at least 1 but was " + slices);
+		}
+		this.order = order;
+		this.running = slices;
+
+		if (order == null) {
+			queues.add(new ArrayBlockingQueue<>(SLICE_QUEUE_CAPACITY * slices));
+			heads = null;
+		} else {
+			heads = new PriorityQueue<>(slices);
+		}
+
+		int size = 0;
+		for (int id = 0; id < slices; id++) {
+			SearchRequestBuilder slice = search.get();
+			if (slices > 1) {
+				slice.slice(new SliceBuilder(id, slices));
+			}
+			size = Math.max(size, slice.request().source().size());
+
+			BlockingQueue<Object> queue;
+			if (order == null) {
+				queue = queues.get(0);
+			} else {
+				queue = new ArrayBlockingQueue<>(SLICE_QUEUE_CAPACITY);
+				queues.add(queue);
+			}
+			tasks.add(pool.submit(() -> runSlice(client, slice, keepAlive, queue)));
+		}
+		this.pageSize = size > 0 ? size : 10;
+	}
+
+	private static void runSlice(TransportClient client, SearchRequestBuilder slice, TimeValue keepAlive,
+			BlockingQueue<Object> queue) {
+		try {
+			try (PrefetchingScroll scroll = new PrefetchingScroll(client, slice, keepAlive, 1)) {
+				while (scroll.hasNext()) {
+					queue.put(scroll.next().getHits().getHits());
+				}
+			} catch (RuntimeException e) {
+				queue.put(e);
+				return;
+			}
+			queue.put(END);
+		} catch (InterruptedException e) {
+			// closed by the consumer
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (current == null) {
+			current = order == null ? nextPage() : nextMergedPage();
+		}
+		return current != null;
+	}
+
+	@Override
+	public SearchHit[] next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		SearchHit[] page = current;
+		current = null;
+		return page;
+	}
+
+	private SearchHit[] nextPage() {
+		while (running > 0) {
+			Object page = take(queues.get(0));
+			if (page == END) {
+				running--;
+			} else {
+				return (SearchHit[]) page;
+			}
+		}
+		return null;
+	}
+
+	private SearchHit[] nextMergedPage() {
+		if (!started) {
+			started = true;
+			for (BlockingQueue<Object> queue : queues) {
+				SliceCursor cursor = new SliceCursor(queue);
+				if (cursor.advance()) {
+					heads.add(cursor);
+				}
+			}
+		}
+		SearchHit[] page = new SearchHit[pageSize];
+		int count = 0;
+		while (count < pageSize && !heads.isEmpty()) {
+			SliceCursor cursor = heads.poll();
+			page[count++] = cursor.hit();
+			if (cursor.advance()) {
+				heads.add(cursor);
+			}
+		}
+		if (count == 0) {
+			return null;
+		}
+		return count == pageSize ? page : Arrays.copyOf(page, count);
+	}
+
+	private static Object take(BlockingQueue<Object> queue) {
+		Object page;
+		try {
+			page = queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw ExceptionsHelper.convertToRuntime(e);
+		}
+		if (page instanceof RuntimeException) {
+			throw (RuntimeException) page;
+		}
+		return page;
+	}
+
+	/**
+	 * stops the slices still running, their scroll contexts are cleared
+	 */
+	@Override
+	public void close() {
+		for (Future<?> task : tasks) {
+			task.cancel(true);
+		}
+	}
+
+	/**
+	 * position of the merge in the pages of one slice
+	 */
+	private class SliceCursor implements Comparable<SliceCursor> {
+		private final BlockingQueue<Object> queue;
+		private SearchHit[] page;
+		private int index;
+
+		SliceCursor(BlockingQueue<Object> queue) {
+			this.queue = queue;
+		}
+
+		SearchHit hit() {
+			return page[index];
+		}
+
+		boolean advance() {
+			if (page != null && ++index < page.length) {
+				return true;
+			}
+			Object next = take(queue);
+			while (next != END) {
+				page = (SearchHit[]) next;
+				index = 0;
+				if (page.length > 0) {
+					return true;
+				}
+				next = take(queue);
+			}
+			return false;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		@Override
+		public int compareTo(SliceCursor other) {
+			Comparable mine = (Comparable) hit().getSortValues()[0];
+			Comparable theirs = (Comparable) other.hit().getSortValues()[0];
+			int result = mine.compareTo(theirs);
+			return order == SortOrder.DESC ? -result : result;
+		}
+	}
+}
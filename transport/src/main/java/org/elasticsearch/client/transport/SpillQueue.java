@@ -0,0 +1,225 @@
+package org.elasticsearch.client.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only queue of byte records on disk, for batches the backend can't take right now.
+ *
+ * Records are appended to segment files (00000000000000000000.spill, ...) which are
+ * memory-mapped, so appending runs at memory speed and the page cache writes them out.
+ * Every record is stored as [length][crc32][bytes]; a torn record at the end of a segment
+ * fails its checksum and is ignored after a crash. The consumer offset (segment, position)
+ * lives in a small mapped file as well and is only moved by commit(), so a record is read
+ * again after a restart until it was committed. Fully consumed segments are deleted.
+ */
+public class SpillQueue implements Closeable {
+
+	private static final String SUFFIX = ".spill";
+	private static final int HEADER = 8;
+	// a length of -1 marks the end of a segment that was rolled over
+	private static final int END_OF_SEGMENT = -1;
+
+	private final Path dir;
+	private final int segmentSize;
+	private final TreeSet<Long> segments = new TreeSet<>();
+
+	private long writeSegment;
+	private MappedByteBuffer writeBuffer;
+
+	private long readSegment;
+	private int readPosition;
+	private ByteBuffer readBuffer;
+	private long nextSegment;
+	private int nextPosition = -1;
+
+	private final MappedByteBuffer offset;
+
+	/**
+	 * @param dir directory of the segment files, created if missing
+	 * @param segmentSize bytes per segment, larger records get a segment of their own size
+	 * @throws IOException
+	 */
+	public SpillQueue(Path dir, int segmentSize) throws IOException {
+		this.dir = Files.createDirectories(dir);
+		this.segmentSize = segmentSize;
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				segments.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+			}
+		}
+
+		offset = map(dir.resolve("consumer.offset"), 16);
+		long committedSegment = offset.getLong(0);
+		int committedPosition = offset.getInt(8);
+		if (offset.getInt(12) != (int) (committedSegment * 31 + committedPosition) || !segments.contains(committedSegment)) {
+			committedSegment = segments.isEmpty() ? 0 : segments.first();
+			committedPosition = 0;
+		}
+
+		if (segments.isEmpty()) {
+			segments.add(0L);
+		}
+		writeSegment = segments.last();
+		writeBuffer = map(segment(writeSegment), segmentSize);
+		writeBuffer.position(endOf(writeBuffer));
+
+		readSegment = committedSegment;
+		readPosition = committedPosition;
+		readBuffer = readSegment == writeSegment ? writeBuffer.duplicate() : map(segment(readSegment), segmentSize);
+		// segments before the committed one were consumed before a crash
+		while (segments.first() < readSegment) {
+			Files.deleteIfExists(segment(segments.pollFirst()));
+		}
+	}
+
+	public synchronized void append(byte[] record) throws IOException {
+		if (writeBuffer.remaining() < HEADER + record.length) {
+			roll(HEADER + record.length);
+		}
+		int position = writeBuffer.position();
+		CRC32 crc = new CRC32();
+		crc.update(record);
+		writeBuffer.putInt(position + 4, (int) crc.getValue());
+		writeBuffer.position(position + HEADER);
+		writeBuffer.put(record);
+		writeBuffer.putInt(position, record.length);
+	}
+
+	/**
+	 * @return the oldest record that was not committed, or null if there is none
+	 * @throws IOException
+	 */
+	public synchronized byte[] peek() throws IOException {
+		while (true) {
+			boolean writing = readSegment == writeSegment;
+			int limit = writing ? writeBuffer.position() : readBuffer.capacity();
+			if (readPosition + HEADER <= limit) {
+				int length = readBuffer.getInt(readPosition);
+				if (length > 0 && readPosition + HEADER + length <= limit) {
+					byte[] record = new byte[length];
+					read(readBuffer, readPosition + HEADER, record);
+					CRC32 crc = new CRC32();
+					crc.update(record);
+					if ((int) crc.getValue() == readBuffer.getInt(readPosition + 4)) {
+						nextSegment = readSegment;
+						nextPosition = readPosition + HEADER + length;
+						return record;
+					}
+				}
+			}
+			if (writing) {
+				return null;
+			}
+			// end of a rolled segment, or a torn record a crash left behind
+			Long next = segments.higher(readSegment);
+			Files.deleteIfExists(segment(readSegment));
+			segments.remove(readSegment);
+			readSegment = next;
+			readPosition = 0;
+			readBuffer = readSegment == writeSegment ? writeBuffer.duplicate() : map(segment(readSegment), segmentSize);
+			storeOffset();
+		}
+	}
+
+	/**
+	 * mark the record returned by the last peek as consumed
+	 */
+	public synchronized void commit() {
+		if (nextPosition < 0) {
+			throw new IllegalStateException("nothing to commit, call peek first");
+		}
+		readSegment = nextSegment;
+		readPosition = nextPosition;
+		nextPosition = -1;
+		storeOffset();
+	}
+
+	public synchronized boolean isEmpty() throws IOException {
+		return peek() == null;
+	}
+
+	/**
+	 * write the mapped segments and the offset to disk
+	 */
+	public synchronized void sync() {
+		writeBuffer.force();
+		offset.force();
+	}
+
+	@Override
+	public synchronized void close() {
+		sync();
+	}
+
+	private void roll(int minSize) throws IOException {
+		if (writeBuffer.remaining() >= 4) {
+			writeBuffer.putInt(writeBuffer.position(), END_OF_SEGMENT);
+		}
+		writeBuffer.force();
+		writeSegment++;
+		segments.add(writeSegment);
+		writeBuffer = map(segment(writeSegment), Math.max(segmentSize, minSize));
+	}
+
+	private void storeOffset() {
+		offset.putLong(0, readSegment);
+		offset.putInt(8, readPosition);
+		offset.putInt(12, (int) (readSegment * 31 + readPosition));
+	}
+
+	private Path segment(long id) {
+		return dir.resolve(String.format("%020d", id) + SUFFIX);
+	}
+
+	/**
+	 * map a file, existing files keep their size
+	 */
+	private static MappedByteBuffer map(Path file, int size) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			long length = Math.max(size, channel.size());
+			return channel.map(MapMode.READ_WRITE, 0, length);
+		}
+	}
+
+	private static void read(ByteBuffer buffer, int position, byte[] record) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(position);
+		view.get(record);
+	}
+
+	/**
+	 * @return the position after the last complete record of a segment
+	 */
+	private static int endOf(MappedByteBuffer buffer) {
+		int position = 0;
+		while (position + HEADER <= buffer.capacity()) {
+			int length = buffer.getInt(position);
+			if (length <= 0 || position + HEADER + length > buffer.capacity()) {
+				break;
+			}
+			byte[] record = new byte[length];
+			read(buffer, position + HEADER, record);
+			CRC32 crc = new CRC32();
+			crc.update(record);
+			if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+				break;
+			}
+			position += HEADER + length;
+		}
+		return position;
+	}
+}
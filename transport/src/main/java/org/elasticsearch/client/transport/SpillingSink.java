@@ -0,0 +1,148 @@
+package org.elasticsearch.client.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.unit.TimeValue;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * Puts a SpillQueue in front of the backend. A batch the backend refuses is spilled to
+ * disk instead of failing the export, and while anything is spilled new batches go to the
+ * queue as well. A background thread replays the queue as soon as the backend takes batches
+ * again; what is left when the export ends stays on disk and is replayed by the next run.
+ *
+ * Direct ships, spills and each replayed batch run under one lock, so the backend receives
+ * the batches in the order they were shipped. Several threads shipping to the sink take
+ * turns, and a ship waits for one replayed batch at most, not for the whole queue.
+ */
+public class SpillingSink implements LogSink, Closeable {
+
+	private static final Logger logger = LogManager.getLogger(SpillingSink.class);
+
+	private final LogSink backend;
+	private final SpillQueue queue;
+	private final long retryMillis;
+	private final Thread replayer;
+	private final Object replayLock = new Object();
+	private volatile boolean closed;
+
+	/**
+	 * @param backend
+	 * @param queue
+	 * @param retry pause after the backend refused a replayed batch
+	 */
+	public SpillingSink(LogSink backend, SpillQueue queue, TimeValue retry) {
+		this.backend = backend;
+		this.queue = queue;
+		this.retryMillis = retry.millis();
+		this.replayer = new Thread(this::replayLoop, "spill-replay");
+		this.replayer.setDaemon(true);
+		this.replayer.start();
+	}
+
+	@Override
+	public void ship(List<LogCollect> records) throws Exception {
+		synchronized (replayLock) {
+			if (queue.isEmpty()) {
+				try {
+					backend.ship(records);
+					return;
+				} catch (IOException e) {
+					logger.warn("backend refused " + records.size() + " records, spilling them: " + e.getMessage());
+				}
+			}
+			queue.append(JSON.toJSONBytes(records));
+		}
+		synchronized (queue) {
+			queue.notifyAll();
+		}
+	}
+
+	@Override
+	public void ship(LogCollectBatch batch) throws Exception {
+		synchronized (replayLock) {
+			if (queue.isEmpty()) {
+				try {
+					backend.ship(batch);
+					return;
+				} catch (IOException e) {
+					logger.warn("backend refused " + batch.size() + " records, spilling them: " + e.getMessage());
+				}
+			}
+			queue.append(batch.toJSONBytes());
+		}
+		synchronized (queue) {
+			queue.notifyAll();
+		}
+	}
+
+	/**
+	 * try to replay everything spilled, records the backend still refuses stay on disk
+	 */
+	@Override
+	public void flush() throws Exception {
+		replay();
+		backend.flush();
+		queue.sync();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		replayer.interrupt();
+		try {
+			replayer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		queue.close();
+	}
+
+	private void replayLoop() {
+		while (!closed) {
+			try {
+				if (!replay()) {
+					Thread.sleep(retryMillis);
+					continue;
+				}
+				synchronized (queue) {
+					if (queue.isEmpty()) {
+						queue.wait(retryMillis);
+					}
+				}
+			} catch (InterruptedException e) {
+				return;
+			} catch (Exception e) {
+				logger.error("replaying spilled records failed", e);
+			}
+		}
+	}
+
+	/**
+	 * @return false if the backend refused a batch
+	 */
+	private boolean replay() throws Exception {
+		while (true) {
+			// the lock is released between two batches, a ship waits for one replayed batch at most
+			synchronized (replayLock) {
+				byte[] record = queue.peek();
+				if (record == null) {
+					return true;
+				}
+				List<LogCollect> records = JSON.parseArray(new String(record, StandardCharsets.UTF_8), LogCollect.class);
+				try {
+					backend.ship(records);
+				} catch (IOException e) {
+					return false;
+				}
+				queue.commit();
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package org.elasticsearch.client.transport;
+
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for AdaptivePaging.
+ */
+public class AdaptivePagingTest
+    extends TestCase
+{
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    private double headroom = 0.5;
+
+    private AdaptivePaging.Builder paging()
+    {
+        return AdaptivePaging.builder()
+                .setPageSize(100, 5000)
+                .setTargetLatency(TimeValue.timeValueSeconds(1))
+                .setHeapHeadroom(() -> headroom);
+    }
+
+    public void testGrowsOnFullFastPagesAndHalvesOnSlowOnes()
+    {
+        AdaptivePaging paging = paging().build();
+        assertEquals( 100, paging.pageSize() );
+        // just within half the target, grows by a tenth
+        paging.onPage(100, 100, 1000, TimeUnit.MILLISECONDS.toNanos(480));
+        assertEquals( 110, paging.pageSize() );
+
+        // a page that was not full tells nothing about a larger one
+        paging.onPage(110, 50, 500, FAST);
+        assertEquals( 110, paging.pageSize() );
+
+        // the pages of a scroll keep the size of its first request, their cost moves the size
+        paging.onPage(100, 100, 1000, FAST);
+        assertEquals( 500, paging.pageSize() );
+        paging.onPage(100, 100, 1000, FAST);
+        assertEquals( 500, paging.pageSize() );
+
+        paging.onPage(500, 500, 5000, SLOW);
+        assertEquals( 250, paging.pageSize() );
+
+        paging.onPage(250, 250, 2500, TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals( 5000, paging.pageSize() );
+    }
+
+    public void testHalvesOnLowHeapAndCapsBytes()
+    {
+        AdaptivePaging paging = paging()
+                .setPageSize(10, 1000)
+                .setMaxPageBytes(new ByteSizeValue(100, ByteSizeUnit.KB))
+                .build();
+        for ( int i = 0; i < 100; i++ )
+        {
+            paging.onPage(paging.pageSize(), paging.pageSize(), paging.pageSize() * 100L, FAST);
+        }
+        assertEquals( 1000, paging.pageSize() );
+
+        headroom = 0.1;
+        paging.onPage(1000, 1000, 100000, FAST);
+        assertEquals( 500, paging.pageSize() );
+
+        // 1kB per hit fits 100 hits into a page
+        headroom = 0.5;
+        for ( int i = 0; i < 100; i++ )
+        {
+            paging.onPage(paging.pageSize(), paging.pageSize(), paging.pageSize() * 1024L, FAST);
+        }
+        assertEquals( 100, paging.pageSize() );
+    }
+
+    public void testKeepAliveFollowsTheSlowestPage()
+    {
+        AdaptivePaging paging = paging()
+                .setKeepAlive(TimeValue.timeValueSeconds(1), TimeValue.timeValueSeconds(30))
+                .build();
+        assertEquals( 1000, paging.keepAlive().millis() );
+
+        paging.onPage(100, 100, 1000, SLOW);
+        paging.onProcessed(TimeUnit.SECONDS.toNanos(1));
+        assertEquals( 9000, paging.keepAlive().millis() );
+
+        paging.onProcessed(TimeUnit.MINUTES.toNanos(1));
+        assertEquals( 30000, paging.keepAlive().millis() );
+    }
+}
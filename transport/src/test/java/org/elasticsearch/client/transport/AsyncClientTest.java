@@ -0,0 +1,142 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the in-flight limit and the scroll of AsyncClient.
+ */
+public class AsyncClientTest
+    extends TestCase
+{
+    public void testRequestsOverTheLimitWaitForAPermit() throws Exception
+    {
+        AsyncClient async = new AsyncClient(null, () -> 2);
+        List<ActionListener<String>> sent = new ArrayList<>();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for ( int i = 0; i < 5; i++ )
+        {
+            futures.add(async.execute(sent::add));
+        }
+        assertEquals( 2, sent.size() );
+        assertEquals( 2, async.inFlight() );
+        assertEquals( 3, async.pending() );
+
+        sent.get(0).onResponse("first");
+        assertEquals( "first", futures.get(0).get() );
+        assertEquals( 3, sent.size() );
+        assertEquals( 2, async.inFlight() );
+
+        sent.get(1).onFailure(new IOException("node gone"));
+        try
+        {
+            futures.get(1).get();
+            fail();
+        }
+        catch ( ExecutionException e )
+        {
+            assertEquals( "node gone", e.getCause().getMessage() );
+        }
+        assertEquals( 4, sent.size() );
+
+        for ( int i = 2; i < 5; i++ )
+        {
+            sent.get(i).onResponse("r" + i);
+        }
+        assertEquals( "r4", futures.get(4).get() );
+        assertEquals( 0, async.inFlight() );
+        assertEquals( 0, async.pending() );
+    }
+
+    public void testDependentRequestGetsThePermitOfItsParent() throws Exception
+    {
+        AsyncClient async = new AsyncClient(null, () -> 1);
+        List<ActionListener<String>> sent = new ArrayList<>();
+        CompletableFuture<String> chained = async.<String>execute(sent::add)
+                .thenCompose(first -> async.<String>execute(listener -> listener.onResponse(first + " second")));
+        sent.get(0).onResponse("first");
+        assertEquals( "first second", chained.get() );
+        assertEquals( 0, async.inFlight() );
+    }
+
+    public void testFailureWhileSendingReleasesThePermit() throws Exception
+    {
+        AsyncClient async = new AsyncClient(null, () -> 1);
+        CompletableFuture<String> failed = async.execute(listener -> {
+            throw new IllegalStateException("client closed");
+        });
+        assertTrue( failed.isCompletedExceptionally() );
+        assertEquals( 0, async.inFlight() );
+    }
+
+    private static SearchHit[] page( int... ids )
+    {
+        SearchHit[] hits = new SearchHit[ids.length];
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            hits[i] = new SearchHit(ids[i], "d" + ids[i], new Text("fluentd"), Collections.emptyMap());
+        }
+        return hits;
+    }
+
+    public void testScrollHandlesPagesOnTheExecutor() throws Exception
+    {
+        ExecutorService handlers = Executors.newSingleThreadExecutor(r -> new Thread(r, "handler"));
+        try ( StubClient client = new StubClient(request -> Arrays.asList(page(1, 2), page(3))) )
+        {
+            AsyncClient async = new AsyncClient(client, () -> 2);
+            List<String> threads = new CopyOnWriteArrayList<>();
+            long handled = async.scroll(client.prepareSearch("logstash-*"), TimeValue.timeValueSeconds(10),
+                    hits -> threads.add(Thread.currentThread().getName()), handlers).get();
+            assertEquals( 3, handled );
+            assertEquals( Arrays.asList("handler", "handler"), threads );
+            assertEquals( 0, client.openScrolls() );
+        }
+        finally
+        {
+            handlers.shutdown();
+        }
+    }
+
+    public void testFailedScrollPageClearsTheScroll() throws Exception
+    {
+        ExecutorService handlers = Executors.newSingleThreadExecutor();
+        // null fails the second page
+        try ( StubClient client = new StubClient(request -> Arrays.asList(page(1, 2), null)) )
+        {
+            AsyncClient async = new AsyncClient(client, () -> 2);
+            CompletableFuture<Long> scroll = async.scroll(client.prepareSearch("logstash-*"),
+                    TimeValue.timeValueSeconds(10), hits -> {}, handlers);
+            try
+            {
+                scroll.get();
+                fail();
+            }
+            catch ( ExecutionException e )
+            {
+                assertEquals( "shard failure", e.getCause().getMessage() );
+            }
+            assertEquals( Arrays.asList("stub-1"), client.cleared );
+            assertEquals( 0, client.openScrolls() );
+        }
+        finally
+        {
+            handlers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.elasticsearch.client.transport;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchHit;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for CheckpointTailer.
+ */
+public class CheckpointTailerTest
+    extends TestCase
+{
+    // searchable documents by "timestamp uid", in the order of the sort on @timestamp and _uid
+    private final TreeMap<String, Long> docs = new TreeMap<>();
+
+    private long now;
+
+    private Path checkpointFile;
+
+    private StubClient client;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        checkpointFile = Files.createTempDirectory("tailer").resolve("checkpoint");
+        client = new StubClient(this::search);
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        client.close();
+    }
+
+    private void index( long timestamp )
+    {
+        docs.put(String.format("%08d fluentd#d%d", timestamp, timestamp), timestamp);
+    }
+
+    /**
+     * the range and search_after of the tailer applied to the documents
+     */
+    private List<SearchHit[]> search( SearchRequest request )
+    {
+        RangeQueryBuilder range = null;
+        for ( QueryBuilder clause : ((BoolQueryBuilder) request.source().query()).filter() )
+        {
+            if ( clause instanceof RangeQueryBuilder )
+            {
+                range = (RangeQueryBuilder) clause;
+            }
+        }
+        assertNotNull( range );
+        assertFalse( range.includeUpper() );
+        long from = ((Number) range.from()).longValue();
+        long to = ((Number) range.to()).longValue();
+        Object[] after = request.source().searchAfter();
+        String afterKey = String.format("%08d %s", ((Number) after[0]).longValue(), after[1]);
+
+        List<SearchHit> page = new ArrayList<>();
+        for ( long timestamp : docs.tailMap(afterKey, false).values() )
+        {
+            if ( page.size() == request.source().size() )
+            {
+                break;
+            }
+            if ( timestamp >= from && timestamp < to )
+            {
+                byte[] source = ("{\"@timestamp\":" + timestamp + "}").getBytes(StandardCharsets.UTF_8);
+                SearchHit hit = new SearchHit(page.size(), "d" + timestamp, new Text("fluentd"), Collections.emptyMap())
+                        .sourceRef(new BytesArray(source));
+                hit.sortValues(new Object[] { timestamp, "fluentd#d" + timestamp },
+                        new DocValueFormat[] { DocValueFormat.RAW, DocValueFormat.RAW });
+                page.add(hit);
+            }
+        }
+        return Collections.singletonList(page.toArray(new SearchHit[page.size()]));
+    }
+
+    private CheckpointTailer tailer() throws Exception
+    {
+        CheckpointTailer tailer = new CheckpointTailer(client, QueryBuilders.matchAllQuery(), checkpointFile, 0, 2,
+                () -> now);
+        tailer.setSettleLag(TimeValue.timeValueMillis(100));
+        return tailer;
+    }
+
+    private static List<String> poll( CheckpointTailer tailer ) throws Exception
+    {
+        List<String> ids = new ArrayList<>();
+        tailer.poll(hits -> {
+            for ( SearchHit hit : hits )
+            {
+                ids.add(hit.getId());
+            }
+        });
+        return ids;
+    }
+
+    public void testPagesAndResumesFromTheStoredCheckpoint() throws Exception
+    {
+        for ( long timestamp = 100; timestamp <= 500; timestamp += 100 )
+        {
+            index(timestamp);
+        }
+        now = 1000;
+        CheckpointTailer tailer = tailer();
+        assertEquals( Arrays.asList("d100", "d200", "d300", "d400", "d500"), poll(tailer) );
+        // two full pages and the last one
+        assertEquals( 3, client.searches.size() );
+        assertEquals( "500 fluentd#d500", Checkpoint.load(checkpointFile).toString() );
+
+        index(600);
+        now = 2000;
+        CheckpointTailer restarted = tailer();
+        assertEquals( "500 fluentd#d500", restarted.getCheckpoint().toString() );
+        assertEquals( Arrays.asList("d600"), poll(restarted) );
+        assertEquals( "600 fluentd#d600", Checkpoint.load(checkpointFile).toString() );
+    }
+
+    public void testLateDocumentWithinTheSettleLagIsRead() throws Exception
+    {
+        index(100);
+        index(200);
+        index(950);
+        now = 1000;
+        CheckpointTailer tailer = tailer();
+        // 950 is within the lag, a document older than it may still come
+        assertEquals( Arrays.asList("d100", "d200"), poll(tailer) );
+        assertEquals( 200, tailer.getCheckpoint().getTimestamp() );
+
+        // flushed by the forwarder after the first poll
+        index(850);
+        now = 1100;
+        assertEquals( Arrays.asList("d850", "d950"), poll(tailer) );
+        assertEquals( 950, tailer.getCheckpoint().getTimestamp() );
+    }
+
+    public void testNoSearchBeforeTheLagHasPassed() throws Exception
+    {
+        now = 50;
+        assertTrue( poll(tailer()).isEmpty() );
+        assertTrue( client.searches.isEmpty() );
+    }
+
+    public void testStoredCheckpointStopsAtTheOldestHeldDocument() throws Exception
+    {
+        for ( long timestamp = 100; timestamp <= 400; timestamp += 100 )
+        {
+            index(timestamp);
+        }
+        now = 1000;
+        CheckpointTailer tailer = tailer();
+        // the handler still holds the document of 200, e.g. the first line of an open trace
+        tailer.setHeld(() -> 200);
+        assertEquals( Arrays.asList("d100", "d200", "d300", "d400"), poll(tailer) );
+        assertEquals( "400 fluentd#d400", tailer.getCheckpoint().toString() );
+        assertEquals( "200 ", Checkpoint.load(checkpointFile).toString() );
+
+        // after a restart the held document is fetched again
+        assertEquals( Arrays.asList("d200", "d300", "d400"), poll(tailer()) );
+    }
+}
@@ -0,0 +1,41 @@
+package org.elasticsearch.client.transport;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for Checkpoint.
+ */
+public class CheckpointTest
+    extends TestCase
+{
+    public void testMissingFile() throws Exception
+    {
+        Path dir = Files.createTempDirectory("checkpoint");
+        assertNull( Checkpoint.load(dir.resolve("none")) );
+    }
+
+    public void testStoreAndLoad() throws Exception
+    {
+        Path file = Files.createTempDirectory("checkpoint").resolve("tail.checkpoint");
+        new Checkpoint(1515840091000L, "fluentd#AWDx 1").store(file);
+        new Checkpoint(1515840092000L, "fluentd#AWDy 2").store(file);
+
+        Checkpoint loaded = Checkpoint.load(file);
+        assertEquals( 1515840092000L, loaded.getTimestamp() );
+        assertEquals( "fluentd#AWDy 2", loaded.getUid() );
+        assertFalse( Files.exists(file.resolveSibling("tail.checkpoint.tmp")) );
+    }
+
+    public void testEmptyUid() throws Exception
+    {
+        Path file = Files.createTempDirectory("checkpoint").resolve("tail.checkpoint");
+        new Checkpoint(1515840091000L, "").store(file);
+
+        Checkpoint loaded = Checkpoint.load(file);
+        assertEquals( 1515840091000L, loaded.getTimestamp() );
+        assertEquals( "", loaded.getUid() );
+    }
+}
@@ -0,0 +1,75 @@
+package org.elasticsearch.client.transport;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for ExportMetrics.
+ */
+public class ExportMetricsTest
+    extends TestCase
+{
+    public void testSnapshotTakesTheIntervalAndResets()
+    {
+        ExportMetrics metrics = new ExportMetrics();
+        metrics.recordScroll(2000, 100);
+        metrics.recordScroll(4000, 50);
+        metrics.recordDecode(10000, 10);
+        metrics.recordPost(1500, 200, 4096, 100);
+        metrics.recordPost(900, 503, 1024, 20);
+        metrics.recordPostFailure();
+        metrics.registerQueue("decode", () -> 7);
+
+        ExportMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals( 2, snapshot.scrollMicros.getTotalCount() );
+        assertEquals( 75.0, snapshot.hitsPerPage.getMean() );
+        // per document
+        assertEquals( 10, snapshot.decodeNanos.getTotalCount() );
+        assertEquals( 1000, snapshot.decodeNanos.getValueAtPercentile(50) );
+        assertEquals( 2, snapshot.postMicros.getTotalCount() );
+        assertEquals( Long.valueOf(1), snapshot.statusCodes.get(200) );
+        assertEquals( Long.valueOf(1), snapshot.statusCodes.get(503) );
+        assertEquals( 1, snapshot.postFailures );
+        // only the successful post shipped
+        assertEquals( 4096, snapshot.bytesShipped );
+        assertEquals( 100, snapshot.recordsShipped );
+        assertEquals( Integer.valueOf(7), snapshot.queueDepths.get("decode") );
+
+        ExportMetrics.Snapshot next = metrics.snapshot();
+        assertEquals( 0, next.scrollMicros.getTotalCount() );
+        assertEquals( 0, next.decodeNanos.getTotalCount() );
+        assertEquals( 0, next.postMicros.getTotalCount() );
+        assertEquals( Long.valueOf(0), next.statusCodes.get(200) );
+        assertEquals( 0, next.postFailures );
+        assertEquals( 0, next.bytesShipped );
+        assertEquals( 0, next.recordsShipped );
+
+        metrics.unregisterQueue("decode");
+        assertTrue( metrics.snapshot().queueDepths.isEmpty() );
+    }
+
+    public void testReporterGetsSnapshots() throws Exception
+    {
+        ExportMetrics metrics = new ExportMetrics();
+        List<ExportMetrics.Snapshot> reports = new CopyOnWriteArrayList<>();
+        metrics.recordScroll(1000, 10);
+        metrics.startReporting(reports::add, TimeValue.timeValueMillis(10));
+        try
+        {
+            for ( int i = 0; i < 100 && reports.isEmpty(); i++ )
+            {
+                Thread.sleep(10);
+            }
+        }
+        finally
+        {
+            metrics.stopReporting();
+        }
+        assertFalse( reports.isEmpty() );
+        assertEquals( 1, reports.get(0).scrollMicros.getTotalCount() );
+    }
+}
@@ -0,0 +1,212 @@
+package org.elasticsearch.client.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for ExportPipeline.
+ */
+public class ExportPipelineTest
+    extends TestCase
+{
+    /**
+     * pages of fluentd hits with the log lines "line 0", "line 1", ...
+     */
+    private static class Pages implements Iterator<SearchHit[]>, Closeable
+    {
+        final int pages;
+        final int hitsPerPage;
+        int next;
+        boolean closed;
+
+        Pages( int pages, int hitsPerPage )
+        {
+            this.pages = pages;
+            this.hitsPerPage = hitsPerPage;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next < pages;
+        }
+
+        @Override
+        public SearchHit[] next()
+        {
+            SearchHit[] hits = new SearchHit[hitsPerPage];
+            for ( int i = 0; i < hitsPerPage; i++ )
+            {
+                int line = next * hitsPerPage + i;
+                byte[] source = ("{\"log\":\"line " + line + "\",\"@timestamp\":\"2018-01-13T09:21:31Z\"}")
+                        .getBytes(StandardCharsets.UTF_8);
+                hits[i] = new SearchHit(line, "d" + line, new Text("fluentd"), Collections.emptyMap())
+                        .sourceRef(new BytesArray(source));
+            }
+            next++;
+            return hits;
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+
+    private static class RecordingSink implements LogSink
+    {
+        final Set<String> shipped = Collections.synchronizedSet(new HashSet<>());
+        final AtomicInteger ships = new AtomicInteger();
+        int failAt = -1;
+        int shippedWhenFlushed = -1;
+
+        @Override
+        public void ship( List<LogCollect> records ) throws Exception
+        {
+            if ( ships.incrementAndGet() == failAt )
+            {
+                throw new IOException("connection reset");
+            }
+            for ( LogCollect record : records )
+            {
+                shipped.add(record.getContent());
+            }
+        }
+
+        @Override
+        public void flush()
+        {
+            shippedWhenFlushed = shipped.size();
+        }
+    }
+
+    /**
+     * holds back every record until the end of the export
+     */
+    private static class HoldingStage implements LogStage
+    {
+        final List<LogCollect> held = new ArrayList<>();
+        final AtomicInteger flushes = new AtomicInteger();
+
+        @Override
+        public synchronized List<LogCollect> process( List<LogCollect> records )
+        {
+            held.addAll(records);
+            return Collections.emptyList();
+        }
+
+        @Override
+        public synchronized List<LogCollect> flush()
+        {
+            flushes.incrementAndGet();
+            return new ArrayList<>(held);
+        }
+    }
+
+    private static Set<String> lines( int count )
+    {
+        Set<String> lines = new HashSet<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            lines.add("line " + i);
+        }
+        return lines;
+    }
+
+    public void testShipsEveryPageAndFlushesAtTheEnd() throws Exception
+    {
+        Pages pages = new Pages(20, 5);
+        RecordingSink sink = new RecordingSink();
+        long shipped = ExportPipeline.builder(pages, sink)
+                .setDecodeThreads(3)
+                .setShipThreads(2)
+                .setQueueCapacity(2)
+                .build()
+                .run();
+        assertEquals( 100, shipped );
+        assertEquals( lines(100), sink.shipped );
+        assertEquals( 100, sink.shippedWhenFlushed );
+        assertTrue( pages.closed );
+        for ( String queue : ExportMetrics.global().snapshot().queueDepths.keySet() )
+        {
+            assertFalse( queue, queue.startsWith("pages-") || queue.startsWith("batches-") );
+        }
+    }
+
+    public void testLastDecoderFlushesTheStagesInOrder() throws Exception
+    {
+        // the records the first stage flushes pass the second one before it is flushed
+        HoldingStage first = new HoldingStage();
+        HoldingStage second = new HoldingStage();
+        RecordingSink sink = new RecordingSink();
+        long shipped = ExportPipeline.builder(new Pages(10, 3), sink)
+                .addStage(first)
+                .addStage(second)
+                .setDecodeThreads(4)
+                .build()
+                .run();
+        assertEquals( 30, shipped );
+        assertEquals( lines(30), sink.shipped );
+        assertEquals( 1, first.flushes.get() );
+        assertEquals( 1, second.flushes.get() );
+    }
+
+    public void testSinkFailureEndsTheRun() throws Exception
+    {
+        Pages pages = new Pages(50, 5);
+        RecordingSink sink = new RecordingSink();
+        sink.failAt = 2;
+        try
+        {
+            ExportPipeline.builder(pages, sink).setQueueCapacity(1).build().run();
+            fail();
+        }
+        catch ( IOException e )
+        {
+            assertEquals( "connection reset", e.getMessage() );
+        }
+        assertEquals( -1, sink.shippedWhenFlushed );
+        assertTrue( pages.closed );
+    }
+
+    public void testSourceFailureEndsTheRun() throws Exception
+    {
+        Pages pages = new Pages(5, 5)
+        {
+            @Override
+            public SearchHit[] next()
+            {
+                if ( next == 3 )
+                {
+                    throw new IllegalStateException("search_context_missing_exception");
+                }
+                return super.next();
+            }
+        };
+        try
+        {
+            ExportPipeline.builder(pages, new RecordingSink()).build().run();
+            fail();
+        }
+        catch ( IllegalStateException e )
+        {
+            assertEquals( "search_context_missing_exception", e.getMessage() );
+        }
+        assertTrue( pages.closed );
+    }
+}
@@ -0,0 +1,87 @@
+package org.elasticsearch.client.transport;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for FaultClassifier.
+ */
+public class FaultClassifierTest
+    extends TestCase
+{
+    private static String faulttype( FaultClassifier classifier, String line )
+    {
+        FaultRule rule = classifier.classify(line);
+        return rule == null ? null : rule.getFaulttype();
+    }
+
+    public void testFirstMatchingRuleWins()
+    {
+        FaultClassifier classifier = FaultClassifier.defaults();
+        assertEquals( "oom", faulttype(classifier, "Exception in thread \"main\" java.lang.OutOfMemoryError: Java heap space") );
+        assertEquals( "connection", faulttype(classifier, "java.net.ConnectException: Connection refused (Connection refused)") );
+        assertEquals( "timeout", faulttype(classifier, "ERROR read timed out after 30000 ms") );
+        assertEquals( "exception", faulttype(classifier, "\tat org.apache.iotdb.IoTDBException.<init>(IoTDBException.java:12)") );
+        assertEquals( "error", faulttype(classifier, "2018-01-13 09:21:02 ERROR [main] compaction failed") );
+        assertEquals( "warning", faulttype(classifier, "WARN  [pool-1] slow flush") );
+        assertEquals( "other", faulttype(classifier, "INFO started in 3.2 s") );
+        assertEquals( "info", classifier.classify("INFO started in 3.2 s").getSeverity() );
+    }
+
+    public void testWholeWordsAndEndings()
+    {
+        FaultClassifier classifier = new FaultClassifier(FaultRule.parse(
+                "[{\"faulttype\":\"timeout\",\"severity\":\"error\",\"keywords\":[\"timed out\"]},"
+                + "{\"faulttype\":\"exception\",\"severity\":\"error\",\"exceptions\":[\"Exception\"]}]"));
+        assertEquals( "timeout", faulttype(classifier, "request TIMED OUT.") );
+        assertNull( faulttype(classifier, "timed outside") );
+        assertNull( faulttype(classifier, "untimed out") );
+        assertEquals( "exception", faulttype(classifier, "java.io.IOException: closed") );
+        assertNull( faulttype(classifier, "ExceptionHandler registered") );
+        assertNull( faulttype(classifier, "错误 服务不可用") );
+    }
+
+    public void testRegexIsOnlyTriedAfterItsWords()
+    {
+        FaultClassifier classifier = new FaultClassifier(FaultRule.parse(
+                "[{\"faulttype\":\"http\",\"severity\":\"error\",\"keywords\":[\"HTTP/1.1\\\"\"],\"regex\":\"\\\" 5\\\\d\\\\d \"},"
+                + "{\"faulttype\":\"access\",\"severity\":\"info\",\"regex\":\"^\\\\d+\\\\.\\\\d+\\\\.\\\\d+\\\\.\\\\d+ \"}]"));
+        assertEquals( "http", faulttype(classifier, "10.0.0.1 - - \"GET /api HTTP/1.1\" 503 0") );
+        assertEquals( "access", faulttype(classifier, "10.0.0.1 - - \"GET /api HTTP/1.1\" 200 512") );
+        assertNull( faulttype(classifier, "GET /api \" 503 0") );
+    }
+
+    public void testRecordsAndBatches()
+    {
+        FaultClassifier classifier = FaultClassifier.defaults();
+        LogCollect oom = new LogCollect();
+        oom.setContent("OOMKilled");
+        LogCollect empty = new LogCollect();
+        List<LogCollect> records = classifier.process(Arrays.asList(oom, empty));
+        assertEquals( "oom", records.get(0).getFaulttype() );
+        assertEquals( "critical", records.get(0).getSeverity() );
+        assertNull( records.get(1).getFaulttype() );
+
+        LogCollectBatch batch = new LogCollectBatch();
+        batch.addRow();
+        batch.setContent(0, "No space left on device");
+        classifier.process(batch);
+        assertEquals( "disk", batch.getFaulttype(0) );
+        assertEquals( "critical", batch.getSeverity(0) );
+    }
+
+    public void testManyRules()
+    {
+        StringBuilder json = new StringBuilder("[");
+        for ( int i = 0; i < 200; i++ )
+        {
+            json.append(i == 0 ? "" : ",").append("{\"faulttype\":\"f").append(i)
+                    .append("\",\"keywords\":[\"word").append(i).append("\"],\"regex\":\"word").append(i).append(" !\"}");
+        }
+        FaultClassifier classifier = new FaultClassifier(FaultRule.parse(json.append("]").toString()));
+        assertEquals( "f150", faulttype(classifier, "word199 word150 ! word170 !") );
+        assertNull( faulttype(classifier, "word199 word150 word170") );
+    }
+}
@@ -0,0 +1,65 @@
+package org.elasticsearch.client.transport;
+
+import java.util.Arrays;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for FetchProfile.
+ */
+public class FetchProfileTest
+    extends TestCase
+{
+    private static SearchSourceBuilder apply( FetchProfile profile )
+    {
+        SearchSourceBuilder source = new SearchSourceBuilder().explain(true);
+        profile.apply(source);
+        return source;
+    }
+
+    public void testLogCollectFetchesTheDecodedFields()
+    {
+        SearchSourceBuilder source = apply(FetchProfile.LOG_COLLECT);
+        assertTrue( source.fetchSource().fetchSource() );
+        assertEquals( Arrays.asList("log", "@timestamp", "kubernetes.host", "kubernetes.pod_name", "kubernetes.container_name"),
+                Arrays.asList(source.fetchSource().includes()) );
+        assertFalse( source.explain() );
+        assertNull( source.sorts() );
+    }
+
+    public void testDocValuesWithoutSource()
+    {
+        SearchSourceBuilder source = apply(FetchProfile.builder()
+                .setFetchSource(false)
+                .setDocValueFields("@timestamp", "kubernetes.host")
+                .setUnordered(true)
+                .build());
+        assertFalse( source.fetchSource().fetchSource() );
+        assertEquals( Arrays.asList("@timestamp", "kubernetes.host"), source.docValueFields() );
+        assertEquals( 1, source.sorts().size() );
+        assertTrue( source.sorts().get(0).toString().contains("_doc") );
+    }
+
+    public void testAlertReadsKeywordDocValues()
+    {
+        SearchSourceBuilder source = apply(FetchProfile.ALERT);
+        assertEquals( Arrays.asList("log"), Arrays.asList(source.fetchSource().includes()) );
+        for ( String field : source.docValueFields() )
+        {
+            assertTrue( field, field.equals("@timestamp") || field.endsWith(".keyword") );
+        }
+    }
+
+    public void testFilterContext()
+    {
+        BoolQueryBuilder query = FetchProfile.filter(QueryBuilders.termQuery("log", "error"),
+                QueryBuilders.rangeQuery("@timestamp").gte(0));
+        assertEquals( 2, query.filter().size() );
+        assertTrue( query.must().isEmpty() );
+        assertTrue( query.should().isEmpty() );
+    }
+}
@@ -0,0 +1,146 @@
+package org.elasticsearch.client.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPInputStream;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+import com.alibaba.fastjson.JSON;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for HttpSink against an embedded HTTP server.
+ */
+public class HttpSinkTest
+    extends TestCase
+{
+    private HttpServer server;
+    private String url;
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+    private final List<String> transferEncodings = new CopyOnWriteArrayList<>();
+    private volatile int status = 200;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/insertErrorLog.action", exchange -> {
+            InputStream in = exchange.getRequestBody();
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding")))
+            {
+                in = new GZIPInputStream(in);
+            }
+            bodies.add(new String(readAll(in), StandardCharsets.UTF_8));
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            transferEncodings.add(String.valueOf(exchange.getRequestHeaders().getFirst("Transfer-Encoding")));
+            byte[] response = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/insertErrorLog.action";
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        server.stop(0);
+    }
+
+    private static byte[] readAll( InputStream in ) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ( (read = in.read(buffer)) != -1 )
+        {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    public void testPostKeepsConnectionAlive() throws Exception
+    {
+        HttpSink sink = HttpSink.builder(url).build();
+        String postData = "[{\"content\":\"节点异常 error\"}]";
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertEquals( 200, sink.post(postData) );
+        }
+        assertEquals( 3, bodies.size() );
+        assertEquals( postData, bodies.get(2) );
+        assertEquals( clientPorts.get(0), clientPorts.get(2) );
+    }
+
+    public void testGzip() throws Exception
+    {
+        HttpSink sink = HttpSink.builder(url).setGzip(true).build();
+        sink.post("[{\"content\":\"error\"}]");
+        assertEquals( "[{\"content\":\"error\"}]", bodies.get(0) );
+    }
+
+    public void testFailure() throws Exception
+    {
+        status = 503;
+        HttpSink sink = HttpSink.builder(url).build();
+        try
+        {
+            sink.post("[]");
+            fail();
+        }
+        catch ( IOException e )
+        {
+            assertTrue( e.getMessage().contains("503") );
+        }
+    }
+
+    public void testMaxStallIsOnePost() throws Exception
+    {
+        HttpSink sink = HttpSink.builder(url)
+                .setConnectTimeout(TimeValue.timeValueSeconds(2))
+                .setReadTimeout(TimeValue.timeValueSeconds(10))
+                .build();
+        assertEquals( TimeValue.timeValueSeconds(12), sink.maxStall() );
+    }
+
+    public void testStreamingIsChunked() throws Exception
+    {
+        List<LogCollect> records = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        for ( int i = 0; i < 2000; i++ )
+        {
+            content.append("节点异常 error \"").append(i).append("\" ");
+            LogCollect record = new LogCollect();
+            record.setContent(content.length() > 300 ? content.substring(content.length() - 300) : content.toString());
+            record.setHostip("lab" + (i % 4));
+            record.setLogtime(new Date(1515835291123L + i));
+            records.add(record);
+        }
+        LogCollectBatch batch = new LogCollectBatch();
+        batch.addAll(records);
+
+        HttpSink sink = HttpSink.builder(url).setStreaming(true).build();
+        sink.ship(batch);
+        sink.ship(records);
+        assertEquals( JSON.toJSONString(records), bodies.get(0) );
+        assertEquals( JSON.toJSONString(records), bodies.get(1) );
+        assertEquals( "chunked", transferEncodings.get(0) );
+        assertEquals( "chunked", transferEncodings.get(1) );
+
+        HttpSink gzip = HttpSink.builder(url).setStreaming(true).setGzip(true).build();
+        gzip.ship(batch);
+        assertEquals( JSON.toJSONString(records), bodies.get(2) );
+    }
+}
@@ -0,0 +1,86 @@
+package org.elasticsearch.client.transport;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for IndexResolver.
+ */
+public class IndexResolverTest
+    extends TestCase
+{
+    private final AtomicLong now = new AtomicLong(millis("2018-01-13T12:00:00"));
+    private final AtomicInteger fetches = new AtomicInteger();
+    private volatile String[] indices = { "logstash-2018.01.10", "logstash-2018.01.11", "logstash-2018.01.13" };
+
+    private static long millis( String utc )
+    {
+        return new DateTime(utc, DateTimeZone.UTC).getMillis();
+    }
+
+    private IndexResolver resolver()
+    {
+        return new IndexResolver("logstash-", TimeValue.timeValueMinutes(10), () -> {
+            fetches.incrementAndGet();
+            if ( indices == null )
+            {
+                throw new IllegalStateException("no master");
+            }
+            return indices;
+        }, now::get);
+    }
+
+    private static String resolve( IndexResolver resolver, String from, String to )
+    {
+        return Arrays.toString(resolver.resolve(millis(from), millis(to)));
+    }
+
+    public void testRangeIsMappedToDailyIndices() throws Exception
+    {
+        IndexResolver resolver = resolver();
+        assertEquals( "[logstash-2018.01.13]", resolve(resolver, "2018-01-13T11:00:00", "2018-01-13T12:00:00") );
+        // the 12th doesn't exist
+        assertEquals( "[logstash-2018.01.11, logstash-2018.01.13]",
+                resolve(resolver, "2018-01-11T23:00:00", "2018-01-13T01:00:00") );
+        // before any index, a missing index finds nothing
+        assertEquals( "[logstash-2017.12.01]", resolve(resolver, "2017-12-01T00:00:00", "2017-12-02T00:00:00") );
+    }
+
+    public void testWildcardFallback() throws Exception
+    {
+        IndexResolver resolver = resolver();
+        assertEquals( "[logstash-*]", resolve(resolver, "2018-01-01T00:00:00", "2018-01-13T12:00:00") );
+        assertEquals( "[logstash-*]", Arrays.toString(resolver.resolve(0, now.get())) );
+
+        indices = null;
+        assertEquals( "[logstash-*]", resolve(resolver(), "2018-01-13T11:00:00", "2018-01-13T12:00:00") );
+    }
+
+    public void testIndexListIsCachedAndRefreshed() throws Exception
+    {
+        now.set(millis("2018-01-13T23:58:00"));
+        IndexResolver resolver = resolver();
+        resolve(resolver, "2018-01-13T11:00:00", "2018-01-13T12:00:00");
+        resolve(resolver, "2018-01-13T11:00:00", "2018-01-13T12:00:00");
+        assertEquals( 1, fetches.get() );
+
+        // the index of the next day is searched before the list knows it
+        now.set(millis("2018-01-14T00:05:00"));
+        assertEquals( "[logstash-2018.01.13, logstash-2018.01.14]",
+                resolve(resolver, "2018-01-13T23:00:00", "2018-01-14T00:05:00") );
+        assertEquals( 1, fetches.get() );
+
+        // a failed refresh keeps the old list
+        indices = null;
+        now.set(millis("2018-01-14T00:10:00"));
+        assertEquals( "[logstash-2018.01.13]", resolve(resolver, "2018-01-13T11:00:00", "2018-01-13T12:00:00") );
+        assertEquals( 2, fetches.get() );
+    }
+}
@@ -0,0 +1,66 @@
+package org.elasticsearch.client.transport;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the documents of LoadGenerator.
+ */
+public class LoadGeneratorTest
+    extends TestCase
+{
+    public void testDocumentsLookLikeFluentd() throws Exception
+    {
+        LoadGenerator generator = LoadGenerator.builder(null)
+                .setCardinality(3, 5)
+                .setErrorRatio(0.1, 2)
+                .build();
+        LogCollectDecoder decoder = new LogCollectDecoder();
+        Set<String> hosts = new HashSet<>();
+        Set<String> pods = new HashSet<>();
+        int errors = 0;
+        int traces = 0;
+        long timestamp = 1515835291123L;
+        for ( int i = 0; i < 3000; i++ )
+        {
+            XContentBuilder document = generator.document(timestamp);
+            BytesRef source = document.bytes().toBytesRef();
+            LogCollect record = decoder.decode(source.bytes, source.offset, source.length);
+            assertEquals( timestamp, record.getLogtime().getTime() );
+            hosts.add(record.getHostip());
+            pods.add(record.getSoftware());
+            if ( record.getContent().contains(" ERROR ") )
+            {
+                errors++;
+            }
+            if ( record.getContent().startsWith("at ") || record.getContent().startsWith("java.") )
+            {
+                traces++;
+            }
+        }
+        assertEquals( 3, hosts.size() );
+        assertEquals( 15, pods.size() );
+        // 10% of the lines that don't continue a trace, each error brings 2 trace lines
+        assertTrue( "errors " + errors, errors > 200 && errors < 300 );
+        assertEquals( errors * 2, traces, 2 );
+        assertEquals( "logstash-2018.01.13", generator.index(timestamp) );
+    }
+
+    public void testNegativeRateIsRejected()
+    {
+        try
+        {
+            LoadGenerator.builder(null).setRate(-1);
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage().contains("rate") );
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for LogBatcher.
+ */
+public class LogBatcherTest
+    extends TestCase
+{
+    private final List<List<LogCollect>> batches = new CopyOnWriteArrayList<>();
+    private volatile long latencyMillis = 0;
+    private volatile boolean down = false;
+
+    private final LogSink sink = records -> {
+        Thread.sleep(latencyMillis);
+        if ( down )
+        {
+            throw new IOException("backend down");
+        }
+        batches.add(records);
+    };
+
+    private static LogCollect record( String content )
+    {
+        LogCollect record = new LogCollect();
+        record.setContent(content);
+        return record;
+    }
+
+    public void testFlushOnActions() throws Exception
+    {
+        try ( LogBatcher batcher = LogBatcher.builder(sink).setBatchActions(10, 10).build() )
+        {
+            for ( int i = 0; i < 25; i++ )
+            {
+                batcher.add(record("error " + i));
+            }
+            assertEquals( 2, batches.size() );
+            assertEquals( 10, batches.get(1).size() );
+        }
+        assertEquals( 3, batches.size() );
+        assertEquals( 5, batches.get(2).size() );
+    }
+
+    public void testFlushOnBytes() throws Exception
+    {
+        try ( LogBatcher batcher = LogBatcher.builder(sink).setBatchSize(new ByteSizeValue(1000)).build() )
+        {
+            for ( int i = 0; i < 4; i++ )
+            {
+                batcher.add(record(new String(new char[400]).replace('\0', 'x')));
+            }
+            assertEquals( 2, batches.size() );
+        }
+    }
+
+    public void testFlushOnInterval() throws Exception
+    {
+        try ( LogBatcher batcher = LogBatcher.builder(sink).setFlushInterval(TimeValue.timeValueMillis(20)).build() )
+        {
+            batcher.add(record("error"));
+            for ( int i = 0; i < 100 && batches.isEmpty(); i++ )
+            {
+                Thread.sleep(10);
+            }
+            assertEquals( 1, batches.size() );
+        }
+    }
+
+    public void testAdaptToLatency() throws Exception
+    {
+        try ( LogBatcher batcher = LogBatcher.builder(sink).setBatchActions(10, 1000)
+                .setTargetLatency(TimeValue.timeValueMillis(50)).build() )
+        {
+            for ( int i = 0; i < 200; i++ )
+            {
+                batcher.add(record("error"));
+            }
+            int grown = batcher.getBatchActions();
+            assertTrue( grown > 10 );
+
+            latencyMillis = 100;
+            for ( int i = 0; i < grown; i++ )
+            {
+                batcher.add(record("error"));
+            }
+            assertTrue( batcher.getBatchActions() < grown );
+        }
+    }
+
+    public void testFailedBatchIsShippedAgain() throws Exception
+    {
+        down = true;
+        LogBatcher batcher = LogBatcher.builder(sink).setBatchActions(2, 2).build();
+        batcher.add(record("error 0"));
+        try
+        {
+            batcher.add(record("error 1"));
+            fail( "the failure of the sink is thrown" );
+        }
+        catch ( IOException e )
+        {
+            assertEquals( "backend down", e.getMessage() );
+        }
+
+        down = false;
+        batcher.add(record("error 2"));
+        assertEquals( 1, batches.size() );
+        assertEquals( 3, batches.get(0).size() );
+        assertEquals( "error 0", batches.get(0).get(0).getContent() );
+        batcher.close();
+    }
+
+    public void testCloseWaitsForTimedFlush() throws Exception
+    {
+        latencyMillis = 200;
+        down = true;
+        LogBatcher batcher = LogBatcher.builder(sink).setFlushInterval(TimeValue.timeValueMillis(20)).build();
+        batcher.add(record("error"));
+        // the timed flush is shipping
+        Thread.sleep(100);
+        try
+        {
+            batcher.close();
+            fail( "the failure of the timed flush is thrown by close" );
+        }
+        catch ( RuntimeException e )
+        {
+            assertEquals( "backend down", e.getCause() == null ? e.getMessage() : e.getCause().getMessage() );
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.elasticsearch.client.transport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import com.alibaba.fastjson.JSON;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for LogCollectBatch.
+ */
+public class LogCollectBatchTest
+    extends TestCase
+{
+    private static LogCollect record( String content, String host, String pod )
+    {
+        LogCollect record = new LogCollect();
+        record.setContent(content);
+        record.setHostip(host);
+        record.setSoftware(pod);
+        record.setProcessname("iotdb");
+        record.setLogtime(new Date(1515835291123L));
+        return record;
+    }
+
+    public void testSameJsonAsFastjson()
+    {
+        LogCollect full = record("ERROR \"quoted\" \\ path\n\tat line, 中文 \u0001", "lab3", "iotdb-master-0");
+        full.setId(7);
+        full.setCount(3);
+        full.setUser("admin");
+        full.setFaulttype("error");
+        full.setSeverity("critical");
+        LogCollect sparse = new LogCollect();
+        sparse.setContent("only content");
+        List<LogCollect> records = Arrays.asList(full, sparse, record("WARN disk", "lab4", "iotdb-master-0"));
+
+        LogCollectBatch batch = new LogCollectBatch(1);
+        batch.addAll(records);
+        assertEquals( 3, batch.size() );
+        assertEquals( JSON.toJSONString(records), batch.toJSONString() );
+        assertTrue( Arrays.equals(JSON.toJSONBytes(records), batch.toJSONBytes()) );
+        assertEquals( "[]", new LogCollectBatch().toJSONString() );
+    }
+
+    public void testDictionarySharesValues()
+    {
+        LogCollectBatch batch = new LogCollectBatch();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            batch.add(record("error " + i, new String("lab" + (i % 3)), new String("iotdb-master-0")));
+        }
+        assertSame( batch.getHostip(0), batch.getHostip(3) );
+        assertSame( batch.getSoftware(0), batch.getSoftware(999) );
+        char[] chars = "xxlab1xx".toCharArray();
+        assertEquals( batch.code("lab1"), batch.code(chars, 2, 4) );
+
+        batch.clear();
+        assertTrue( batch.isEmpty() );
+        batch.add(record("after clear", "lab1", null));
+        assertEquals( "lab1", batch.getHostip(0) );
+        assertNull( batch.getSoftware(0) );
+    }
+
+    public void testDecodeIntoBatch() throws Exception
+    {
+        String[] sources = {
+            "{\"log\":\" ERROR boom \\n\",\"stream\":\"stderr\",\"@timestamp\":\"2018-01-13T09:21:31.123+00:00\","
+                + "\"kubernetes\":{\"host\":\" lab3 \",\"pod_name\":\"iotdb-master-0\",\"container_name\":\"iotdb\","
+                + "\"labels\":{\"name\":\"iotdb-master\"}}}",
+            "{\"log\":\"WARN slow\",\"@timestamp\":\"2018-01-13T09:21:32Z\",\"kubernetes\":{\"host\":\"lab3\"}}"
+        };
+        LogCollectDecoder decoder = new LogCollectDecoder();
+        List<LogCollect> records = new ArrayList<>();
+        LogCollectBatch batch = new LogCollectBatch();
+        for ( String source : sources )
+        {
+            byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+            records.add(decoder.decode(bytes, 0, bytes.length));
+            decoder.decode(bytes, 0, bytes.length, batch);
+        }
+        assertEquals( JSON.toJSONString(records), batch.toJSONString() );
+        assertSame( batch.getHostip(0), batch.getHostip(1) );
+        assertEquals( 1515835291123L, batch.getLogtime(0) );
+    }
+}
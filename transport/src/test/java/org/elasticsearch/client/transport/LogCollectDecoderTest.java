@@ -0,0 +1,76 @@
+package org.elasticsearch.client.transport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.joda.time.format.ISODateTimeFormat;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for LogCollectDecoder.
+ */
+public class LogCollectDecoderTest
+    extends TestCase
+{
+    private static final String SOURCE = "{\"log\":\"  java.lang.IllegalStateException: error\\n\","
+            + "\"stream\":\"stderr\",\"docker\":{\"container_id\":\"6b2b\"},"
+            + "\"kubernetes\":{\"namespace_name\":\"default\",\"pod_id\":\"7e3c\",\"labels\":{\"name\":\"iotdb-master\"},"
+            + "\"host\":\"lab3\",\"pod_name\":\"iotdb-master-8npsb\",\"container_name\":\"iotdb\"},"
+            + "\"@timestamp\":\"2018-01-13T09:21:31.123456789+00:00\",\"tag\":[\"a\",\"b\"]}";
+
+    private LogCollect decode( String source ) throws Exception
+    {
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        return new LogCollectDecoder().decode(bytes, 0, bytes.length);
+    }
+
+    public void testFluentdSource() throws Exception
+    {
+        LogCollect log = decode(SOURCE);
+        assertEquals( "java.lang.IllegalStateException: error", log.getContent() );
+        assertEquals( "lab3", log.getHostip() );
+        assertEquals( "iotdb-master-8npsb", log.getSoftware() );
+        assertEquals( "iotdb", log.getProcessname() );
+        assertEquals( ISODateTimeFormat.dateTimeParser().parseMillis("2018-01-13T09:21:31.123Z"), log.getLogtime().getTime() );
+    }
+
+    public void testMissingFields() throws Exception
+    {
+        LogCollect log = decode("{\"log\":null,\"kubernetes\":\"none\"}");
+        assertNull( log.getContent() );
+        assertNull( log.getHostip() );
+        assertNull( log.getLogtime() );
+    }
+
+    public void testTimestampFormats() throws Exception
+    {
+        String[] timestamps = { "2018-01-13T09:21:31Z", "2018-01-13T09:21:31.5+08:00", "2016-02-29T23:59:59.999-0130",
+                "1969-12-31T23:59:59.001Z", "2018-01-13T09:21:31" };
+        LogCollectDecoder decoder = new LogCollectDecoder();
+        for ( String timestamp : timestamps )
+        {
+            char[] chars = timestamp.toCharArray();
+            long expected = ISODateTimeFormat.dateTimeParser().withZoneUTC().parseMillis(timestamp);
+            assertEquals( timestamp, expected, decoder.parseIso(chars, 0, chars.length) );
+            // second parse hits the cached second
+            assertEquals( timestamp, expected, decoder.parseIso(chars, 0, chars.length) );
+        }
+    }
+
+    public void testHitWithoutSource() throws Exception
+    {
+        SearchHit hit = new SearchHit(1, "AWDt8jQ", new Text("fluentd"), Collections.emptyMap());
+        try
+        {
+            new LogCollectDecoder().decode(new SearchHit[] { hit }, new LogCollectBatch());
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertEquals( "hit [AWDt8jQ] was fetched without _source", e.getMessage() );
+        }
+    }
+}
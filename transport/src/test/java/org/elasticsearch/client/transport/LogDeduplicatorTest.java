@@ -0,0 +1,70 @@
+package org.elasticsearch.client.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for LogDeduplicator.
+ */
+public class LogDeduplicatorTest
+    extends TestCase
+{
+    private final AtomicLong now = new AtomicLong(1000);
+
+    private static LogCollect record( String content, String pod )
+    {
+        LogCollect record = new LogCollect();
+        record.setContent(content);
+        record.setSoftware(pod);
+        record.setProcessname("iotdb");
+        return record;
+    }
+
+    public void testCollapseWithinWindow() throws Exception
+    {
+        LogDeduplicator dedup = new LogDeduplicator(100, TimeValue.timeValueSeconds(10), now::get);
+        List<LogCollect> out = dedup.process(Arrays.asList(
+                record("Connection refused to 10.0.0.1:6667 after 3 retries", "iotdb-master-8npsb"),
+                record("Connection refused to 10.0.0.2:6667 after 12 retries", "iotdb-master-8npsb"),
+                record("Connection refused to 10.0.0.1:6667 after 3 retries", "iotdb-master-x2k9z")));
+        assertTrue( out.isEmpty() );
+        assertEquals( 2, dedup.size() );
+
+        now.addAndGet(10000);
+        out = dedup.process(Arrays.asList(record("Connection refused to 10.0.0.3:6667 after 1 retries", "iotdb-master-8npsb")));
+        assertEquals( 2, out.size() );
+        assertEquals( Integer.valueOf(2), out.get(0).getCount() );
+        assertNull( out.get(1).getCount() );
+
+        out = dedup.flush();
+        assertEquals( 1, out.size() );
+        assertEquals( 0, dedup.size() );
+    }
+
+    public void testBoundedEntries() throws Exception
+    {
+        LogDeduplicator dedup = new LogDeduplicator(8, TimeValue.timeValueHours(1), now::get);
+        List<LogCollect> emitted = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            // distinct lines by their letters, the digits don't count
+            String line = "error in " + Integer.toString(i % 20 + 10, 36) + " " + i;
+            emitted.addAll(dedup.process(Arrays.asList(record(line, "pod"))));
+            assertTrue( dedup.size() <= 8 );
+        }
+        emitted.addAll(dedup.flush());
+
+        int total = 0;
+        for ( LogCollect record : emitted )
+        {
+            total += record.getCount() == null ? 1 : record.getCount();
+        }
+        assertEquals( 1000, total );
+    }
+}
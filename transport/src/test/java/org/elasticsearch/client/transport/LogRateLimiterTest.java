@@ -0,0 +1,152 @@
+package org.elasticsearch.client.transport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for LogRateLimiter.
+ */
+public class LogRateLimiterTest
+    extends TestCase
+{
+    private final AtomicLong now = new AtomicLong(1000000);
+
+    private static List<LogCollect> lines( String pod, int count )
+    {
+        List<LogCollect> records = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            LogCollect record = new LogCollect();
+            record.setHostip("lab4");
+            record.setSoftware(pod);
+            record.setProcessname("iotdb");
+            record.setContent("ERROR " + i);
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static int count( List<LogCollect> records, String pod, boolean summaries )
+    {
+        int count = 0;
+        for ( LogCollect record : records )
+        {
+            if ( record.getSoftware().equals(pod) && "suppressed".equals(record.getFaulttype()) == summaries )
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void testStormOfOnePodDoesNotStarveOthers()
+    {
+        LogRateLimiter limiter = LogRateLimiter.builder(10, 20)
+                .setSummaryInterval(TimeValue.timeValueSeconds(10))
+                .setClock(now::get)
+                .build();
+        List<LogCollect> batch = lines("storm", 1000);
+        batch.addAll(lines("quiet", 5));
+        List<LogCollect> out = limiter.process(batch);
+        assertEquals( 20, count(out, "storm", false) );
+        assertEquals( 5, count(out, "quiet", false) );
+        assertEquals( 980, limiter.getSuppressed() );
+
+        // one second refills 10 tokens, the summary comes after its interval
+        now.addAndGet(1000);
+        out = limiter.process(lines("storm", 100));
+        assertEquals( 10, count(out, "storm", false) );
+        assertEquals( 0, count(out, "storm", true) );
+
+        now.addAndGet(9000);
+        out = limiter.process(lines("other", 1));
+        assertEquals( 1, count(out, "storm", true) );
+        LogCollect summary = out.get(out.size() - 1);
+        assertEquals( Integer.valueOf(1070), summary.getCount() );
+        assertEquals( "1070 records suppressed in the last 10s", summary.getContent() );
+        assertEquals( "warning", summary.getSeverity() );
+    }
+
+    public void testSamplingAndBatches()
+    {
+        LogRateLimiter limiter = LogRateLimiter.builder(1, 10)
+                .setSampling(10)
+                .setClock(now::get)
+                .build();
+        LogCollectBatch batch = new LogCollectBatch();
+        batch.addAll(lines("storm", 110));
+        limiter.process(batch);
+        // 10 from the bucket, every 10th of the other 100
+        assertEquals( 20, batch.size() );
+        assertEquals( "ERROR 0", batch.getContent(0) );
+        assertEquals( "ERROR 10", batch.getContent(10) );
+        assertEquals( "ERROR 20", batch.getContent(11) );
+
+        List<LogCollect> summaries = limiter.flush();
+        assertEquals( 1, summaries.size() );
+        assertEquals( Integer.valueOf(90), summaries.get(0).getCount() );
+        assertTrue( limiter.flush().isEmpty() );
+    }
+
+    public void testIdleBucketsAreDropped()
+    {
+        LogRateLimiter limiter = LogRateLimiter.builder(10, 10)
+                .setSummaryInterval(TimeValue.timeValueSeconds(1))
+                .setClock(now::get)
+                .build();
+        for ( int pod = 0; pod < 100; pod++ )
+        {
+            limiter.process(lines("pod-" + pod, 1));
+        }
+        assertEquals( 100, limiter.size() );
+        now.addAndGet(2000);
+        limiter.process(lines("pod-0", 1));
+        assertEquals( 1, limiter.size() );
+    }
+
+    public void testSweepDuringLookupLosesNoSuppression()
+    {
+        LogRateLimiter limiter = LogRateLimiter.builder(0.001, 1)
+                .setSummaryInterval(TimeValue.timeValueSeconds(1))
+                .setClock(now::get)
+                .build();
+        long start = now.get();
+        assertEquals( 1, limiter.process(lines("storm", 1)).size() );
+
+        // another worker sweeps the idle bucket after this one looked it up
+        LogCollect record = new LogCollect()
+        {
+            boolean swept;
+
+            @Override
+            public String getProcessname()
+            {
+                if ( !swept )
+                {
+                    swept = true;
+                    now.addAndGet(3600000);
+                    limiter.process(lines("other", 1));
+                    now.set(start);
+                }
+                return super.getProcessname();
+            }
+        };
+        record.setHostip("lab4");
+        record.setSoftware("storm");
+        List<LogCollect> out = limiter.process(Collections.singletonList(record));
+
+        // the record is shipped or counted in a summary somebody can still emit
+        int summarized = 0;
+        for ( LogCollect summary : limiter.flush() )
+        {
+            summarized += summary.getCount();
+        }
+        assertEquals( 1, count(out, "storm", false) + summarized );
+    }
+}
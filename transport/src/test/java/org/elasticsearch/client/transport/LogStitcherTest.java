@@ -0,0 +1,143 @@
+package org.elasticsearch.client.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for LogStitcher.
+ */
+public class LogStitcherTest
+    extends TestCase
+{
+    private final AtomicLong now = new AtomicLong(1000);
+
+    private static LogCollect line( String pod, String content )
+    {
+        LogCollect record = new LogCollect();
+        record.setHostip("lab4");
+        record.setSoftware(pod);
+        record.setProcessname("iotdb");
+        record.setContent(content);
+        return record;
+    }
+
+    private static LogCollect line( String pod, long logtime, String content )
+    {
+        LogCollect record = line(pod, content);
+        record.setLogtime(new Date(logtime));
+        return record;
+    }
+
+    private static List<String> contents( List<LogCollect> records )
+    {
+        List<String> contents = new ArrayList<>();
+        for ( LogCollect record : records )
+        {
+            contents.add(record.getContent());
+        }
+        return contents;
+    }
+
+    public void testTraceBecomesOneRecord()
+    {
+        LogStitcher stitcher = new LogStitcher(100, 100, TimeValue.timeValueSeconds(5), now::get);
+        List<LogCollect> out = stitcher.process(Arrays.asList(
+                line("worker-1", "ERROR flush failed"),
+                line("worker-1", "java.io.IOException: closed"),
+                line("worker-2", "INFO started"),
+                line("worker-1", "\tat a.B.flush(B.java:12)"),
+                line("worker-1", "Caused by: java.net.ConnectException: refused"),
+                line("worker-1", "\t... 3 more"),
+                line("worker-2", "at least one region is offline")));
+        assertEquals( Arrays.asList("ERROR flush failed", "INFO started"), contents(out) );
+        assertEquals( 2, stitcher.size() );
+
+        assertEquals( Arrays.asList(
+                "java.io.IOException: closed\n\tat a.B.flush(B.java:12)\nCaused by: java.net.ConnectException: refused\n\t... 3 more",
+                "at least one region is offline"), contents(stitcher.flush()) );
+        assertEquals( 0, stitcher.size() );
+    }
+
+    public void testEventsAreBounded()
+    {
+        LogStitcher stitcher = new LogStitcher(2, 3, TimeValue.timeValueSeconds(5), now::get);
+        List<LogCollect> out = stitcher.process(Arrays.asList(
+                line("worker-1", "java.io.IOException: closed"),
+                line("worker-1", "at a.B.c(B.java:1)"),
+                line("worker-1", "at a.B.d(B.java:2)"),
+                line("worker-1", "at a.B.e(B.java:3)")));
+        assertEquals( Collections.singletonList("java.io.IOException: closed\n\tat a.B.c(B.java:1)\n\tat a.B.d(B.java:2)"), contents(out) );
+
+        // the oldest open event is shipped for a third container
+        out = stitcher.process(Arrays.asList(line("worker-2", "ERROR a"), line("worker-3", "ERROR b")));
+        assertEquals( Collections.singletonList("at a.B.e(B.java:3)"), contents(out) );
+        assertEquals( 2, stitcher.size() );
+
+        // and all of them once the window expired
+        now.addAndGet(5000);
+        assertEquals( Arrays.asList("ERROR a", "ERROR b"), contents(stitcher.process(Collections.emptyList())) );
+        assertEquals( 0, stitcher.size() );
+    }
+
+    public void testLinesOfOneMillisecondInAnyOrder()
+    {
+        LogStitcher stitcher = new LogStitcher(100, 100, TimeValue.timeValueSeconds(5), now::get);
+        // _uid breaks the tie of @timestamp, the header comes after some of its frames
+        List<LogCollect> out = stitcher.process(Arrays.asList(
+                line("worker-1", 500, "at a.B.flush(B.java:12)"),
+                line("worker-1", 500, "java.io.IOException: closed"),
+                line("worker-1", 500, "Caused by: java.net.ConnectException: refused")));
+        assertTrue( out.isEmpty() );
+
+        // and in the next page
+        out = stitcher.process(Arrays.asList(line("worker-2", 500, "at c.D.run(D.java:3)")));
+        out.addAll(stitcher.process(Arrays.asList(line("worker-2", 500, "java.lang.IllegalStateException: stopped"))));
+        assertTrue( out.isEmpty() );
+
+        assertEquals( Arrays.asList(
+                "java.io.IOException: closed\n\tat a.B.flush(B.java:12)\nCaused by: java.net.ConnectException: refused",
+                "java.lang.IllegalStateException: stopped\n\tat c.D.run(D.java:3)"), contents(stitcher.flush()) );
+    }
+
+    public void testWindowOnLogtime()
+    {
+        LogStitcher stitcher = new LogStitcher(100, 100, TimeValue.timeValueSeconds(5), now::get);
+        // a backlog page, lines logged minutes apart are not joined
+        List<LogCollect> out = stitcher.process(Arrays.asList(
+                line("worker-1", 1000, "java.io.IOException: closed"),
+                line("worker-1", 200000, "at a.B.flush(B.java:12)"),
+                line("worker-2", 200000, "java.io.IOException: reset")));
+        assertEquals( Collections.singletonList("java.io.IOException: closed"), contents(out) );
+
+        // a trace split across two polls is joined
+        now.addAndGet(1000);
+        out = stitcher.process(Arrays.asList(line("worker-2", 200001, "at a.B.read(B.java:7)")));
+        assertTrue( out.isEmpty() );
+        assertEquals( Arrays.asList("java.io.IOException: reset\n\tat a.B.read(B.java:7)", "at a.B.flush(B.java:12)"),
+                contents(stitcher.flush()) );
+    }
+
+    public void testOldestOpenEvent()
+    {
+        LogStitcher stitcher = new LogStitcher(100, 100, TimeValue.timeValueSeconds(5), now::get);
+        assertEquals( Long.MAX_VALUE, stitcher.oldestOpen() );
+        stitcher.process(Arrays.asList(
+                line("worker-1", 2000, "java.io.IOException: closed"),
+                line("worker-2", 1500, "ERROR flush failed")));
+        assertEquals( 1500, stitcher.oldestOpen() );
+
+        // the next event of worker-2 ships the one of 1500
+        stitcher.process(Collections.singletonList(line("worker-2", 2500, "INFO started")));
+        assertEquals( 2000, stitcher.oldestOpen() );
+        stitcher.flush();
+        assertEquals( Long.MAX_VALUE, stitcher.oldestOpen() );
+    }
+}
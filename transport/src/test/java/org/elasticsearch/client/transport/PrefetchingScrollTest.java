@@ -0,0 +1,106 @@
+package org.elasticsearch.client.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PrefetchingScroll.
+ */
+public class PrefetchingScrollTest
+    extends TestCase
+{
+    private static SearchHit[] page( int... ids )
+    {
+        SearchHit[] hits = new SearchHit[ids.length];
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            hits[i] = new SearchHit(ids[i], "d" + ids[i], new Text("fluentd"), Collections.emptyMap());
+        }
+        return hits;
+    }
+
+    private static List<String> ids( PrefetchingScroll scroll, int pages )
+    {
+        List<String> ids = new ArrayList<>();
+        for ( int i = 0; i < pages && scroll.hasNext(); i++ )
+        {
+            for ( SearchHit hit : scroll.next().getHits().getHits() )
+            {
+                ids.add(hit.getId());
+            }
+        }
+        return ids;
+    }
+
+    public void testPagesInOrderAndClearOnClose() throws Exception
+    {
+        try ( StubClient client = new StubClient(request -> Arrays.asList(page(1, 2), page(3, 4), page(5))) )
+        {
+            PrefetchingScroll scroll = new PrefetchingScroll(client, client.prepareSearch("logstash-*").setSize(2),
+                    TimeValue.timeValueSeconds(10), 2);
+            assertEquals( Arrays.asList("d1", "d2", "d3", "d4", "d5"), ids(scroll, Integer.MAX_VALUE) );
+            assertFalse( scroll.hasNext() );
+            assertEquals( 1, client.openScrolls() );
+
+            scroll.close();
+            assertEquals( Arrays.asList("stub-1"), client.cleared );
+            assertEquals( 0, client.openScrolls() );
+        }
+    }
+
+    public void testCloseBeforeTheEndClearsTheScroll() throws Exception
+    {
+        try ( StubClient client = new StubClient(request -> Arrays.asList(page(1), page(2), page(3), page(4))) )
+        {
+            PrefetchingScroll scroll = new PrefetchingScroll(client, client.prepareSearch("logstash-*"),
+                    TimeValue.timeValueSeconds(10), 1);
+            assertEquals( Arrays.asList("d1"), ids(scroll, 1) );
+            // the next page may still be in flight, it is cleared when it arrives
+            scroll.close();
+            assertTrue( client.awaitScrollsCleared() );
+        }
+    }
+
+    public void testFailedPageSurfacesInNext() throws Exception
+    {
+        // null fails the second page
+        try ( StubClient client = new StubClient(request -> Arrays.asList(page(1), null)) )
+        {
+            PrefetchingScroll scroll = new PrefetchingScroll(client, client.prepareSearch("logstash-*"),
+                    TimeValue.timeValueSeconds(10), 1);
+            assertEquals( Arrays.asList("d1"), ids(scroll, 1) );
+            try
+            {
+                scroll.next();
+                fail();
+            }
+            catch ( IllegalStateException e )
+            {
+                assertEquals( "shard failure", e.getMessage() );
+            }
+            scroll.close();
+            assertEquals( 0, client.openScrolls() );
+        }
+    }
+
+    public void testPrefetchMustBePositive() throws Exception
+    {
+        try ( StubClient client = new StubClient(request -> Collections.emptyList()) )
+        {
+            new PrefetchingScroll(client, client.prepareSearch("logstash-*"), TimeValue.timeValueSeconds(10), 0);
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage().contains("prefetch") );
+        }
+    }
+}
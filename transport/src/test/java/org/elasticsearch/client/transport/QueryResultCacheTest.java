@@ -0,0 +1,137 @@
+package org.elasticsearch.client.transport;
+
+import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for QueryResultCache.
+ */
+public class QueryResultCacheTest
+    extends TestCase
+{
+    /**
+     * one document every 10ms, records the ranges that were searched
+     */
+    private static class FakeSearch implements QueryResultCache.RangeSearch
+    {
+        final List<String> ranges = new ArrayList<>();
+
+        @Override
+        public void search( long from, long to, HitsHandler handler ) throws Exception
+        {
+            ranges.add(from + "-" + to);
+            List<SearchHit> page = new ArrayList<>();
+            for ( long t = (from + 9) / 10 * 10; t < to; t += 10 )
+            {
+                byte[] source = ("{\"@timestamp\":" + t + "}").getBytes(StandardCharsets.UTF_8);
+                page.add(new SearchHit(page.size(), "id" + t, new Text("fluentd"), Collections.emptyMap())
+                        .sourceRef(new BytesArray(source)));
+            }
+            if ( !page.isEmpty() )
+            {
+                handler.handle(page.toArray(new SearchHit[page.size()]));
+            }
+        }
+    }
+
+    private static List<String> search( QueryResultCache cache, long from, long to, long now, FakeSearch live )
+        throws Exception
+    {
+        List<String> ids = new ArrayList<>();
+        cache.search("q", from, to, now, live, hits -> {
+            for ( SearchHit hit : hits )
+            {
+                ids.add(hit.getId() + " " + hit.getSourceAsString());
+            }
+        });
+        return ids;
+    }
+
+    public void testClosedBucketsAreServedFromCache() throws Exception
+    {
+        QueryResultCache cache = new QueryResultCache(new ByteSizeValue(1 << 20), TimeValue.timeValueMillis(1000),
+                TimeValue.timeValueMillis(100));
+        FakeSearch live = new FakeSearch();
+        List<String> first = search(cache, 500, 4500, 4000, live);
+        // partial head, closed buckets 1000..3000, open tail from 3000
+        assertEquals( "[500-1000, 1000-2000, 2000-3000, 3000-4500]", live.ranges.toString() );
+        assertEquals( 400, first.size() );
+        assertEquals( 2, cache.size() );
+
+        live.ranges.clear();
+        List<String> second = search(cache, 500, 4500, 4000, live);
+        assertEquals( "[500-1000, 3000-4500]", live.ranges.toString() );
+        assertEquals( first, second );
+        assertEquals( 2, cache.getCacheHits() );
+        assertEquals( 2, cache.getCacheMisses() );
+    }
+
+    public void testOpenRangeIsSearchedLive() throws Exception
+    {
+        QueryResultCache cache = new QueryResultCache(new ByteSizeValue(1 << 20), TimeValue.timeValueMillis(1000),
+                TimeValue.timeValueMillis(100));
+        FakeSearch live = new FakeSearch();
+        search(cache, 1000, 2000, 2050, live);
+        assertEquals( "[1000-2000]", live.ranges.toString() );
+        assertEquals( 0, cache.size() );
+    }
+
+    public void testLeastRecentlyUsedBucketIsEvicted() throws Exception
+    {
+        QueryResultCache probe = new QueryResultCache(new ByteSizeValue(1 << 20), TimeValue.timeValueMillis(1000),
+                TimeValue.timeValueMillis(0));
+        search(probe, 10000, 11000, 100000, new FakeSearch());
+        long entry = probe.sizeInBytes();
+
+        // room for two buckets of about the same size
+        QueryResultCache cache = new QueryResultCache(new ByteSizeValue(entry * 2 + entry / 2),
+                TimeValue.timeValueMillis(1000), TimeValue.timeValueMillis(0));
+        FakeSearch live = new FakeSearch();
+        search(cache, 10000, 12000, 100000, live);
+        search(cache, 10000, 11000, 100000, live);
+        search(cache, 12000, 13000, 100000, live);
+        assertEquals( 2, cache.size() );
+
+        live.ranges.clear();
+        search(cache, 10000, 11000, 100000, live);
+        search(cache, 12000, 13000, 100000, live);
+        assertEquals( "[]", live.ranges.toString() );
+        search(cache, 11000, 12000, 100000, live);
+        assertEquals( "[11000-12000]", live.ranges.toString() );
+    }
+
+    public void testBucketLargerThanTheCacheIsStreamedButNotKept() throws Exception
+    {
+        // a bucket of 100 hits deflates to a few hundred bytes
+        QueryResultCache cache = new QueryResultCache(new ByteSizeValue(64), TimeValue.timeValueMillis(1000),
+                TimeValue.timeValueMillis(0));
+        FakeSearch live = new FakeSearch();
+        assertEquals( 100, search(cache, 10000, 11000, 100000, live).size() );
+        assertEquals( 0, cache.size() );
+        assertEquals( 0, cache.sizeInBytes() );
+
+        search(cache, 10000, 11000, 100000, live);
+        assertEquals( "[10000-11000, 10000-11000]", live.ranges.toString() );
+    }
+
+    public void testCanonicalQuery() throws Exception
+    {
+        assertEquals( QueryResultCache.canonical(termsQuery("log", "error", "exception")),
+                QueryResultCache.canonical(termsQuery("log", "error", "exception")) );
+        assertFalse( QueryResultCache.canonical(termsQuery("log", "error")).equals(
+                QueryResultCache.canonical(termsQuery("log", "exception"))) );
+        assertFalse( QueryResultCache.canonical(termsQuery("log", "error")).contains("\n") );
+    }
+}
@@ -0,0 +1,88 @@
+package org.elasticsearch.client.transport;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for RuleScheduler and AlertRule.
+ */
+public class RuleSchedulerTest
+    extends TestCase
+{
+    private static List<AlertRule> rules( String json ) throws Exception
+    {
+        Path file = Files.createTempFile("rules", ".json");
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+        return AlertRule.load(file);
+    }
+
+    public void testLoadRuleShapes() throws Exception
+    {
+        List<AlertRule> rules = rules("["
+                + "{\"name\":\"a\",\"type\":\"terms\",\"field\":\"log\",\"values\":[\"error\",\"exception\"]},"
+                + "{\"name\":\"b\",\"type\":\"bool\",\"field\":\"kubernetes.labels.name\",\"values\":[\"iotdb-master\"],\"interval\":300},"
+                + "{\"name\":\"c\",\"type\":\"constant_score\",\"field\":\"kubernetes.host\",\"values\":[\"lab4\"]}]");
+        assertEquals( 3, rules.size() );
+        assertTrue( rules.get(0).toQuery() instanceof TermsQueryBuilder );
+        assertEquals( 60, rules.get(0).getInterval() );
+        assertTrue( rules.get(1).toQuery() instanceof BoolQueryBuilder );
+        assertEquals( 300, rules.get(1).getInterval() );
+        assertTrue( rules.get(2).toQuery() instanceof ConstantScoreQueryBuilder );
+    }
+
+    public void testDefaultsFromClasspath()
+    {
+        List<AlertRule> rules = AlertRule.defaults();
+        assertEquals( 3, rules.size() );
+        assertEquals( "log-errors", rules.get(0).getName() );
+    }
+
+    public void testUnknownTypeFailsOnLoad() throws Exception
+    {
+        try
+        {
+            rules("[{\"name\":\"a\",\"type\":\"regexp\",\"field\":\"log\",\"values\":[\"err.*\"]}]");
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage().contains("regexp") );
+        }
+    }
+
+    public void testDueRulesFollowTheirInterval() throws Exception
+    {
+        AlertRule fast = new AlertRule();
+        fast.setInterval(10);
+        AlertRule slow = new AlertRule();
+        slow.setInterval(60);
+        RuleScheduler scheduler = new RuleScheduler(null, Arrays.asList(fast, slow), (rule, response) -> {}, 0);
+
+        assertEquals( Arrays.asList(0, 1), scheduler.due(0) );
+        assertEquals( Arrays.asList(), scheduler.due(9999) );
+        assertEquals( Arrays.asList(0), scheduler.due(10000) );
+        assertEquals( Arrays.asList(0), scheduler.due(25000) );
+        assertEquals( Arrays.asList(0, 1), scheduler.due(60000) );
+    }
+
+    public void testFailedRuleIsDueOnTheNextTick() throws Exception
+    {
+        AlertRule rule = new AlertRule();
+        rule.setInterval(60);
+        RuleScheduler scheduler = new RuleScheduler(null, Arrays.asList(rule), (r, response) -> {}, 0);
+
+        assertEquals( Arrays.asList(0), scheduler.due(0) );
+        scheduler.retry(0, 0);
+        assertEquals( Arrays.asList(0), scheduler.due(1000) );
+        assertEquals( Arrays.asList(), scheduler.due(2000) );
+    }
+}
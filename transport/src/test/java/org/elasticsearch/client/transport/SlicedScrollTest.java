@@ -0,0 +1,165 @@
+package org.elasticsearch.client.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for SlicedScroll.
+ */
+public class SlicedScrollTest
+    extends TestCase
+{
+    private static final int SLICES = 3;
+
+    // pages of each slice, the hits of a slice sorted on their first sort value
+    private final Map<Integer, List<SearchHit[]>> slices = new HashMap<>();
+
+    private ExecutorService pool;
+
+    private StubClient client;
+
+    @Override
+    protected void setUp()
+    {
+        pool = Executors.newFixedThreadPool(SLICES);
+        client = new StubClient(this::slice);
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        pool.shutdownNow();
+        client.close();
+    }
+
+    private List<SearchHit[]> slice( SearchRequest request )
+    {
+        List<SearchHit[]> pages = slices.get(request.source().slice().getId());
+        return pages == null ? Collections.<SearchHit[]>emptyList() : pages;
+    }
+
+    private static SearchHit[] page( long... timestamps )
+    {
+        SearchHit[] hits = new SearchHit[timestamps.length];
+        for ( int i = 0; i < timestamps.length; i++ )
+        {
+            hits[i] = new SearchHit(i, "d" + timestamps[i], new Text("fluentd"), Collections.emptyMap());
+            hits[i].sortValues(new Object[] { timestamps[i] }, new DocValueFormat[] { DocValueFormat.RAW });
+        }
+        return hits;
+    }
+
+    private SlicedScroll scroll( SortOrder order )
+    {
+        return new SlicedScroll(client, () -> client.prepareSearch("logstash-*").setSize(4), SLICES, pool,
+                TimeValue.timeValueSeconds(10), order);
+    }
+
+    private static List<String> ids( SlicedScroll scroll )
+    {
+        List<String> ids = new ArrayList<>();
+        while ( scroll.hasNext() )
+        {
+            for ( SearchHit hit : scroll.next() )
+            {
+                ids.add(hit.getId());
+            }
+        }
+        return ids;
+    }
+
+    public void testMergesSlicesOnTheFirstSortValue() throws Exception
+    {
+        slices.put(0, Arrays.asList(page(1, 4, 7), page(10)));
+        slices.put(1, Arrays.asList(page(2, 5), page(8, 11, 12)));
+        // slice 2 has no hits at all
+        try ( SlicedScroll scroll = scroll(SortOrder.ASC) )
+        {
+            List<SearchHit[]> pages = new ArrayList<>();
+            while ( scroll.hasNext() )
+            {
+                pages.add(scroll.next());
+            }
+            assertEquals( 3, pages.size() );
+            assertEquals( 4, pages.get(0).length );
+            List<String> ids = new ArrayList<>();
+            for ( SearchHit[] page : pages )
+            {
+                for ( SearchHit hit : page )
+                {
+                    ids.add(hit.getId());
+                }
+            }
+            assertEquals( Arrays.asList("d1", "d2", "d4", "d5", "d7", "d8", "d10", "d11", "d12"), ids );
+        }
+        assertTrue( client.awaitScrollsCleared() );
+        assertEquals( SLICES, client.searches.size() );
+    }
+
+    public void testUnorderedReturnsEveryPage() throws Exception
+    {
+        slices.put(0, Arrays.asList(page(1, 2), page(3)));
+        slices.put(2, Collections.singletonList(page(4)));
+        try ( SlicedScroll scroll = scroll(null) )
+        {
+            List<String> ids = ids(scroll);
+            Collections.sort(ids);
+            assertEquals( Arrays.asList("d1", "d2", "d3", "d4"), ids );
+        }
+    }
+
+    public void testFailingSliceSurfacesInNext() throws Exception
+    {
+        slices.put(0, Arrays.asList(page(1), page(2)));
+        // null fails the second page of slice 1
+        slices.put(1, Arrays.asList(page(3), null));
+        try ( SlicedScroll scroll = scroll(SortOrder.ASC) )
+        {
+            try
+            {
+                ids(scroll);
+                fail();
+            }
+            catch ( IllegalStateException e )
+            {
+                assertEquals( "shard failure", e.getMessage() );
+            }
+        }
+        assertTrue( client.awaitScrollsCleared() );
+    }
+
+    public void testCloseClearsTheScrollsOfRunningSlices() throws Exception
+    {
+        for ( int id = 0; id < SLICES; id++ )
+        {
+            List<SearchHit[]> pages = new ArrayList<>();
+            for ( long t = 0; t < 100; t++ )
+            {
+                pages.add(page(t * SLICES + id));
+            }
+            slices.put(id, pages);
+        }
+        try ( SlicedScroll scroll = scroll(SortOrder.ASC) )
+        {
+            assertEquals( 4, scroll.next().length );
+        }
+        // the slices are blocked on their full queues until close interrupts them
+        assertTrue( client.awaitScrollsCleared() );
+        assertEquals( SLICES, client.cleared.size() );
+    }
+}
@@ -0,0 +1,99 @@
+package org.elasticsearch.client.transport;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for SpillQueue.
+ */
+public class SpillQueueTest
+    extends TestCase
+{
+    private static byte[] bytes( String value )
+    {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String next( SpillQueue queue ) throws Exception
+    {
+        byte[] record = queue.peek();
+        if ( record == null )
+        {
+            return null;
+        }
+        queue.commit();
+        return new String(record, StandardCharsets.UTF_8);
+    }
+
+    public void testAppendAndConsumeInOrder() throws Exception
+    {
+        Path dir = Files.createTempDirectory("spill");
+        try ( SpillQueue queue = new SpillQueue(dir, 64) )
+        {
+            for ( int i = 0; i < 20; i++ )
+            {
+                queue.append(bytes("[{\"content\":\"error " + i + "\"}]"));
+            }
+            for ( int i = 0; i < 20; i++ )
+            {
+                assertEquals( "[{\"content\":\"error " + i + "\"}]", next(queue) );
+            }
+            assertNull( next(queue) );
+        }
+        // consumed segments are gone, only the one being written is left
+        assertEquals( 1, Files.list(dir).filter(f -> f.toString().endsWith(".spill")).count() );
+    }
+
+    public void testResumeAtCommittedOffset() throws Exception
+    {
+        Path dir = Files.createTempDirectory("spill");
+        try ( SpillQueue queue = new SpillQueue(dir, 128) )
+        {
+            for ( int i = 0; i < 10; i++ )
+            {
+                queue.append(bytes("batch " + i));
+            }
+            assertEquals( "batch 0", next(queue) );
+            assertEquals( "batch 1", next(queue) );
+            // read but not committed
+            queue.peek();
+        }
+        try ( SpillQueue queue = new SpillQueue(dir, 128) )
+        {
+            assertEquals( "batch 2", next(queue) );
+            queue.append(bytes("batch 10"));
+            for ( int i = 3; i <= 10; i++ )
+            {
+                assertEquals( "batch " + i, next(queue) );
+            }
+            assertTrue( queue.isEmpty() );
+        }
+    }
+
+    public void testTornRecordIsIgnored() throws Exception
+    {
+        Path dir = Files.createTempDirectory("spill");
+        try ( SpillQueue queue = new SpillQueue(dir, 1024) )
+        {
+            queue.append(bytes("complete"));
+            queue.append(bytes("torn"));
+        }
+        // corrupt the last byte of the second record
+        try ( RandomAccessFile file = new RandomAccessFile(dir.resolve("00000000000000000000.spill").toFile(), "rw") )
+        {
+            file.seek(8 + 8 + 8 + 3);
+            file.write('x');
+        }
+        try ( SpillQueue queue = new SpillQueue(dir, 1024) )
+        {
+            assertEquals( "complete", next(queue) );
+            assertNull( next(queue) );
+            queue.append(bytes("after restart"));
+            assertEquals( "after restart", next(queue) );
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.elasticsearch.client.transport;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for SpillingSink.
+ */
+public class SpillingSinkTest
+    extends TestCase
+{
+    /**
+     * refuses every batch while down
+     */
+    private static class FlakySink implements LogSink
+    {
+        final List<String> shipped = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean down;
+
+        @Override
+        public void ship( List<LogCollect> records ) throws Exception
+        {
+            if ( down )
+            {
+                throw new IOException("503 Service Unavailable");
+            }
+            for ( LogCollect record : records )
+            {
+                shipped.add(record.getContent());
+            }
+        }
+    }
+
+    private static List<LogCollect> records( String... contents )
+    {
+        List<LogCollect> records = new ArrayList<>();
+        for ( String content : contents )
+        {
+            LogCollect record = new LogCollect();
+            record.setContent(content);
+            records.add(record);
+        }
+        return records;
+    }
+
+    private Path dir;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = Files.createTempDirectory("spill");
+    }
+
+    private SpillingSink sink( FlakySink backend ) throws Exception
+    {
+        // the replay thread waits a minute after a refusal, flush() replays in between
+        return new SpillingSink(backend, new SpillQueue(dir, 4096), TimeValue.timeValueMinutes(1));
+    }
+
+    public void testRefusedBatchesAreReplayedInOrder() throws Exception
+    {
+        FlakySink backend = new FlakySink();
+        try ( SpillingSink sink = sink(backend) )
+        {
+            sink.ship(records("a"));
+            backend.down = true;
+            sink.ship(records("b", "c"));
+            sink.ship(records("d"));
+            assertEquals( Arrays.asList("a"), backend.shipped );
+
+            backend.down = false;
+            // the backend is back, but "e" has to wait for the spilled batches
+            sink.ship(records("e"));
+            sink.flush();
+            assertEquals( Arrays.asList("a", "b", "c", "d", "e"), backend.shipped );
+
+            sink.ship(records("f"));
+            assertEquals( Arrays.asList("a", "b", "c", "d", "e", "f"), backend.shipped );
+        }
+    }
+
+    public void testSpilledBatchesOutliveTheSink() throws Exception
+    {
+        FlakySink backend = new FlakySink();
+        backend.down = true;
+        try ( SpillingSink sink = sink(backend) )
+        {
+            sink.ship(records("a"));
+            sink.flush();
+        }
+        assertTrue( backend.shipped.isEmpty() );
+
+        backend.down = false;
+        try ( SpillingSink sink = sink(backend) )
+        {
+            sink.flush();
+        }
+        assertEquals( Arrays.asList("a"), backend.shipped );
+    }
+}
@@ -0,0 +1,160 @@
+package org.elasticsearch.client.transport;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.search.ClearScrollAction;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollAction;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.transport.client.PreBuiltTransportClient;
+
+/**
+ * A TransportClient that answers search, scroll and clear scroll requests with the pages the
+ * test hands out, like the RecordedClient of the benchmarks. A search without scroll gets the
+ * first page, a scroll gets the pages one by one. The answer is computed on the calling
+ * thread, the client hands it to the listener on its listener pool.
+ */
+class StubClient
+    extends PreBuiltTransportClient
+{
+    static
+    {
+        // every test creates a client, netty may only be told the processors once
+        System.setProperty("es.set.netty.runtime.available.processors", "false");
+    }
+
+    /**
+     * the pages of a search, a thrown exception fails the request
+     */
+    interface Pages
+    {
+        List<SearchHit[]> pages( SearchRequest request ) throws Exception;
+    }
+
+    final List<SearchRequest> searches = new CopyOnWriteArrayList<>();
+    final List<String> cleared = new CopyOnWriteArrayList<>();
+
+    private final Pages pages;
+    private final AtomicInteger scrolls = new AtomicInteger();
+    private final Map<String, Iterator<Object>> open = new ConcurrentHashMap<>();
+
+    StubClient( Pages pages )
+    {
+        super(Settings.builder().put("cluster.name", "stub").build());
+        this.pages = pages;
+    }
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    protected <Request extends ActionRequest, Response extends ActionResponse, RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>>
+        void doExecute( Action<Request, Response, RequestBuilder> action, Request request, ActionListener<Response> listener )
+    {
+        ActionResponse response;
+        try
+        {
+            if ( action == SearchAction.INSTANCE )
+            {
+                response = firstPage((SearchRequest) request);
+            }
+            else if ( action == SearchScrollAction.INSTANCE )
+            {
+                response = nextPage((SearchScrollRequest) request);
+            }
+            else if ( action == ClearScrollAction.INSTANCE )
+            {
+                List<String> scrollIds = ((ClearScrollRequest) request).getScrollIds();
+                for ( String scrollId : scrollIds )
+                {
+                    open.remove(scrollId);
+                }
+                cleared.addAll(scrollIds);
+                response = new ClearScrollResponse(true, scrollIds.size());
+            }
+            else
+            {
+                throw new UnsupportedOperationException(action.name() + " is not stubbed");
+            }
+        }
+        catch ( Exception e )
+        {
+            listener.onFailure(e);
+            return;
+        }
+        listener.onResponse((Response) response);
+    }
+
+    private SearchResponse firstPage( SearchRequest request ) throws Exception
+    {
+        searches.add(request);
+        Iterator<Object> answers = new CopyOnWriteArrayList<Object>(pages.pages(request)).iterator();
+        if ( request.scroll() == null )
+        {
+            return response(null, answers);
+        }
+        String scrollId = "stub-" + scrolls.incrementAndGet();
+        open.put(scrollId, answers);
+        return response(scrollId, answers);
+    }
+
+    private SearchResponse nextPage( SearchScrollRequest request ) throws Exception
+    {
+        Iterator<Object> answers = open.get(request.scrollId());
+        if ( answers == null )
+        {
+            throw new IllegalArgumentException("no scroll context for " + request.scrollId());
+        }
+        return response(request.scrollId(), answers);
+    }
+
+    private static SearchResponse response( String scrollId, Iterator<Object> answers ) throws Exception
+    {
+        SearchHit[] hits = answers.hasNext() ? (SearchHit[]) answers.next() : new SearchHit[0];
+        if ( hits == null )
+        {
+            // a null page stands for a failing request
+            throw new IllegalStateException("shard failure");
+        }
+        InternalSearchResponse sections = new InternalSearchResponse(new SearchHits(hits, hits.length, Float.NaN),
+                null, null, null, false, null, 1);
+        return new SearchResponse(sections, scrollId, 1, 1, 0, 1, ShardSearchFailure.EMPTY_ARRAY);
+    }
+
+    /**
+     * @return the scrolls that were not cleared
+     */
+    int openScrolls()
+    {
+        return open.size();
+    }
+
+    /**
+     * @return true once every scroll was cleared, false if some are still open after a second
+     */
+    boolean awaitScrollsCleared() throws InterruptedException
+    {
+        for ( int i = 0; i < 100 && !open.isEmpty(); i++ )
+        {
+            Thread.sleep(10);
+        }
+        return open.isEmpty();
+    }
+}